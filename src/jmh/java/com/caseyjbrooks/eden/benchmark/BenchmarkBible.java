@@ -0,0 +1,108 @@
+package com.caseyjbrooks.eden.benchmark;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.defaults.DefaultBible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A Bible with all 66 Books of the Protestant canon, their common abbreviations, and the default verse counts, so that
+ * benchmarks run against realistic data.
+ */
+public class BenchmarkBible extends Bible<BenchmarkBible.BenchmarkBook> {
+    public static final String[][] BOOK_NAMES = new String[][] {
+            {"Genesis", "Gen"}, {"Exodus", "Exo"}, {"Leviticus", "Lev"}, {"Numbers", "Num"}, {"Deuteronomy", "Deut"},
+            {"Joshua", "Josh"}, {"Judges", "Judg"}, {"Ruth", "Ruth"}, {"1 Samuel", "1 Sam"}, {"2 Samuel", "2 Sam"},
+            {"1 Kings", "1 Kgs"}, {"2 Kings", "2 Kgs"}, {"1 Chronicles", "1 Chr"}, {"2 Chronicles", "2 Chr"},
+            {"Ezra", "Ezra"}, {"Nehemiah", "Neh"}, {"Esther", "Esth"}, {"Job", "Job"}, {"Psalms", "Ps"},
+            {"Proverbs", "Prov"}, {"Ecclesiastes", "Eccl"}, {"Song of Solomon", "Song"}, {"Isaiah", "Isa"},
+            {"Jeremiah", "Jer"}, {"Lamentations", "Lam"}, {"Ezekiel", "Ezek"}, {"Daniel", "Dan"}, {"Hosea", "Hos"},
+            {"Joel", "Joel"}, {"Amos", "Amos"}, {"Obadiah", "Obad"}, {"Jonah", "Jonah"}, {"Micah", "Mic"},
+            {"Nahum", "Nah"}, {"Habakkuk", "Hab"}, {"Zephaniah", "Zeph"}, {"Haggai", "Hag"}, {"Zechariah", "Zech"},
+            {"Malachi", "Mal"}, {"Matthew", "Matt"}, {"Mark", "Mark"}, {"Luke", "Luke"}, {"John", "John"},
+            {"Acts", "Acts"}, {"Romans", "Rom"}, {"1 Corinthians", "1 Cor"}, {"2 Corinthians", "2 Cor"},
+            {"Galatians", "Gal"}, {"Ephesians", "Eph"}, {"Philippians", "Phil"}, {"Colossians", "Col"},
+            {"1 Thessalonians", "1 Thess"}, {"2 Thessalonians", "2 Thess"}, {"1 Timothy", "1 Tim"},
+            {"2 Timothy", "2 Tim"}, {"Titus", "Titus"}, {"Philemon", "Phlm"}, {"Hebrews", "Heb"}, {"James", "Jas"},
+            {"1 Peter", "1 Pet"}, {"2 Peter", "2 Pet"}, {"1 John", "1 John"}, {"2 John", "2 John"},
+            {"3 John", "3 John"}, {"Jude", "Jude"}, {"Revelation", "Rev"}
+    };
+
+    public BenchmarkBible() {
+        super();
+        setId("benchmark");
+        setName("Benchmark Bible");
+        setAbbreviation("BENCH");
+
+        List<BenchmarkBook> books = new ArrayList<>();
+        for (int i = 0; i < BOOK_NAMES.length; i++) {
+            books.add(new BenchmarkBook(i + 1, BOOK_NAMES[i][0], BOOK_NAMES[i][1], DefaultBible.defaultBookVerseCount[i]));
+        }
+        setBooks(books);
+    }
+
+    /**
+     * Generate a corpus of citations as they are typically written, using both full names and abbreviations, single
+     * verses, ranges, lists of verses and whole chapters, and a small share of input that is not a valid reference.
+     *
+     * @param size the number of citations to generate
+     * @param seed the seed for the random generator, so that the same corpus can be generated again
+     * @return the citations
+     */
+    public static String[] citations(int size, long seed) {
+        Random random = new Random(seed);
+        String[] citations = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            int book = random.nextInt(BOOK_NAMES.length);
+            int[] chapters = DefaultBible.defaultBookVerseCount[book];
+            int chapter = 1 + random.nextInt(chapters.length);
+            int verse = 1 + random.nextInt(chapters[chapter - 1]);
+
+            StringBuilder sb = new StringBuilder();
+            switch (random.nextInt(4)) {
+                case 0: sb.append(BOOK_NAMES[book][0]); break;
+                case 1: sb.append(BOOK_NAMES[book][1]); break;
+                case 2: sb.append(BOOK_NAMES[book][1]).append('.'); break;
+                default: sb.append(BOOK_NAMES[book][0].toLowerCase()); break;
+            }
+            sb.append(' ').append(chapter);
+
+            int form = random.nextInt(20);
+            if (form < 10) {
+                sb.append(':').append(verse);
+            }
+            else if (form < 15) {
+                int end = verse + random.nextInt(chapters[chapter - 1] - verse + 1);
+                sb.append(':').append(verse).append('-').append(end);
+            }
+            else if (form < 17) {
+                sb.append(':').append(verse).append(", ").append(1 + random.nextInt(chapters[chapter - 1]));
+            }
+            else if (form < 19) {
+                //a whole chapter
+            }
+            else {
+                sb.append(" through the end, see footnote");
+            }
+
+            citations[i] = sb.toString();
+        }
+
+        return citations;
+    }
+
+    public static class BenchmarkBook extends Book {
+        public BenchmarkBook(int location, String name, String abbreviation, int... chapters) {
+            super();
+            setId("benchmark:" + abbreviation);
+            setLocation(location);
+            setName(name);
+            setAbbreviation(abbreviation);
+            setChapters(chapters);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.caseyjbrooks.eden.benchmark;
+
+import com.eden.bible.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the general recursive-descent parser with the parser compiled for a single Bible, over a corpus of
+ * citations written the way people usually write them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final int CORPUS_SIZE = 1000;
+
+    private String[] corpus;
+    private Reference.Builder generalBuilder;
+    private Reference.Builder compiledBuilder;
+
+    @Setup
+    public void setup() {
+        BenchmarkBible bible = new BenchmarkBible();
+        corpus = BenchmarkBible.citations(CORPUS_SIZE, 42);
+
+        generalBuilder = new Reference.Builder().setBible(bible);
+
+        compiledBuilder = new Reference.Builder().setBible(bible);
+        compiledBuilder.getParser().setCompiled(true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void generalParser(Blackhole blackhole) {
+        for (String citation : corpus) {
+            blackhole.consume(generalBuilder.parseReference(citation).create());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void compiledParser(Blackhole blackhole) {
+        for (String citation : corpus) {
+            blackhole.consume(compiledBuilder.parseReference(citation).create());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.caseyjbrooks.eden.benchmark;
+
+import com.eden.bible.Reference;
+import com.eden.serializers.BinaryCodec;
+import com.eden.serializers.EdenTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding a list of References with the binary codec, the streaming JSON adapters, and the tree-model
+ * {@link Reference.ReferenceJsonizer}, and decoding the binary and streaming JSON formats. The tree-model format has
+ * no deserializer, so it can only be encoded. {@code ReferenceTest.testBinaryCodec} checks that the binary encoding is
+ * much smaller than either JSON encoding; for this corpus it is about 5 KB, against 86 KB from ReferenceJsonizer and
+ * 113 KB from the streaming adapters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceCodecBenchmark {
+    private static final int CORPUS_SIZE = 1000;
+    private static final Type REFERENCE_LIST = new TypeToken<List<Reference>>() { }.getType();
+
+    private List<Reference> references;
+
+    private BinaryCodec codec;
+    private Gson streamingGson;
+    private Gson jsonizerGson;
+
+    private ByteBuffer buffer;
+    private byte[] binary;
+    private String json;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkBible bible = new BenchmarkBible();
+        String[] corpus = BenchmarkBible.citations(CORPUS_SIZE, 42);
+
+        Reference.Builder builder = new Reference.Builder().setBible(bible);
+        references = new ArrayList<>();
+        for (String citation : corpus) {
+            references.add(builder.parseReference(citation).create());
+        }
+
+        codec = new BinaryCodec(bible);
+        streamingGson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory(bible)).create();
+        jsonizerGson = new GsonBuilder().registerTypeAdapter(Reference.class, new Reference.ReferenceJsonizer()).create();
+
+        buffer = ByteBuffer.allocate(1 << 20);
+        codec.writeReferences(buffer, references);
+        binary = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(binary);
+
+        json = streamingGson.toJson(references, REFERENCE_LIST);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public ByteBuffer encodeBinary() throws IOException {
+        buffer.clear();
+        codec.writeReferences(buffer, references);
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public String encodeStreamingJson() {
+        return streamingGson.toJson(references, REFERENCE_LIST);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public String encodeJsonizer() {
+        return jsonizerGson.toJson(references, REFERENCE_LIST);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public List<Reference> decodeBinary() throws IOException {
+        return codec.readReferences(ByteBuffer.wrap(binary));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public List<Reference> decodeStreamingJson() {
+        return streamingGson.fromJson(json, REFERENCE_LIST);
+    }
+}
@@ -0,0 +1,166 @@
+package com.caseyjbrooks.eden.benchmark;
+
+import com.eden.bible.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures HashMap lookups and inserts keyed by References. The "legacy" benchmarks wrap each Reference in a key with
+ * the equals and hashCode that Reference used to have, which compared boxed verse lists with nested contains() calls
+ * and rehashed the Book name and verses on every call, so both can be compared in one run.
+ * <p>
+ * Lookups are made with References which are equal to the keys in the map, but are not the same instances, so that
+ * equals() is exercised rather than short-circuited.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceHashBenchmark {
+    private static final int CORPUS_SIZE = 1000;
+
+    private Reference[] keys;
+    private Reference[] lookups;
+    private LegacyKey[] legacyKeys;
+    private LegacyKey[] legacyLookups;
+
+    private Map<Reference, Integer> map;
+    private Map<LegacyKey, Integer> legacyMap;
+
+    @Setup
+    public void setup() {
+        BenchmarkBible bible = new BenchmarkBible();
+        String[] corpus = BenchmarkBible.citations(CORPUS_SIZE, 42);
+
+        Reference.Builder builder = new Reference.Builder().setBible(bible);
+        keys = new Reference[corpus.length];
+        lookups = new Reference[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            keys[i] = builder.parseReference(corpus[i]).create();
+            lookups[i] = builder.parseReference(corpus[i]).create();
+        }
+
+        legacyKeys = new LegacyKey[keys.length];
+        legacyLookups = new LegacyKey[lookups.length];
+        map = new HashMap<>();
+        legacyMap = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            legacyKeys[i] = new LegacyKey(keys[i]);
+            legacyLookups[i] = new LegacyKey(lookups[i]);
+            map.put(keys[i], i);
+            legacyMap.put(legacyKeys[i], i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void get(Blackhole blackhole) {
+        for (Reference lookup : lookups) {
+            blackhole.consume(map.get(lookup));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void getLegacy(Blackhole blackhole) {
+        for (LegacyKey lookup : legacyLookups) {
+            blackhole.consume(legacyMap.get(lookup));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * CORPUS_SIZE)
+    public Map<Reference, Integer> put() {
+        Map<Reference, Integer> fresh = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            fresh.put(keys[i], i);
+        }
+        for (int i = 0; i < lookups.length; i++) {
+            fresh.put(lookups[i], i);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * CORPUS_SIZE)
+    public Map<LegacyKey, Integer> putLegacy() {
+        Map<LegacyKey, Integer> fresh = new HashMap<>();
+        for (int i = 0; i < legacyKeys.length; i++) {
+            fresh.put(legacyKeys[i], i);
+        }
+        for (int i = 0; i < legacyLookups.length; i++) {
+            fresh.put(legacyLookups[i], i);
+        }
+        return fresh;
+    }
+
+    /**
+     * A Reference with the equals and hashCode it had when its verses were stored as a List of boxed Integers.
+     */
+    static final class LegacyKey {
+        private final Reference reference;
+        private final List<Integer> verses;
+
+        LegacyKey(Reference reference) {
+            this.reference = reference;
+            this.verses = new ArrayList<>(reference.getVerses());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof LegacyKey)) {
+                return false;
+            }
+
+            LegacyKey key = (LegacyKey) other;
+            if (!reference.getBook().equals(key.reference.getBook())) {
+                return false;
+            }
+            if (reference.getChapter() != key.reference.getChapter()) {
+                return false;
+            }
+            if (verses.size() != key.verses.size()) {
+                return false;
+            }
+
+            for (Integer i : verses) {
+                if (!key.verses.contains(i)) {
+                    return false;
+                }
+            }
+            for (Integer i : key.verses) {
+                if (!verses.contains(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = reference.getBook().getName().hashCode();
+            result = 31 * result + reference.getChapter();
+            result = 31 * result + verses.hashCode();
+            return result;
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package com.eden;
 
 import com.eden.bible.Metadata;
-import com.eden.bible.Reference;
 import com.eden.injection.EdenInjector;
 import com.eden.injection.annotations.EdenBibleDefinition;
 import com.eden.injection.annotations.EdenBibleListDefinition;
 import com.eden.interfaces.KeyValueStore;
 import com.eden.repositories.EdenRepository;
+import com.eden.serializers.EdenTypeAdapterFactory;
 import com.google.gson.GsonBuilder;
 
 import java.util.HashMap;
@@ -72,12 +72,13 @@ public final class Eden {
                 .disableHtmlEscaping()
                 .setPrettyPrinting()
                 .serializeNulls()
-                .registerTypeAdapter(Reference.class, new Reference.ReferenceJsonizer());
+                .registerTypeAdapterFactory(EdenTypeAdapterFactory.referencesAndMetadata());
 
         this.deserializer = new GsonBuilder()
                 .disableHtmlEscaping()
                 .setPrettyPrinting()
-                .serializeNulls();
+                .serializeNulls()
+                .registerTypeAdapterFactory(EdenTypeAdapterFactory.referencesAndMetadata());
 
         edenInjector = new EdenInjector();
         edenInjector.addAnnotation(new EdenBibleDefinition());
@@ -5,6 +5,7 @@ import com.eden.utils.TextUtils;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
 
 // TODO: decide whether I really want to keep language and languageEnglish
 // TODO: decide whether a Bible should have a Metadata object for itself to hold other information
@@ -23,6 +24,14 @@ public abstract class Bible<T extends Book> implements Comparable<Bible> {
     protected String copyright;
     protected List<T> books;
 
+    private transient volatile BookIndex bookIndex;
+    private transient volatile int booksVersion;
+    private transient volatile FuzzyBookIndex fuzzyBookIndex;
+    private transient volatile OrdinalIndex ordinalIndex;
+    private transient int maxEditDistance;
+    private transient Versification versification;
+    private transient volatile VersificationMapping mapping;
+
     public Bible() {
         this.books = new ArrayList<>();
     }
@@ -145,42 +154,241 @@ public abstract class Bible<T extends Book> implements Comparable<Bible> {
     public void setBooks(Collection<T> books) {
         this.books = new ArrayList<>();
         this.books.addAll(books);
+        invalidateBookIndex();
+    }
+
+    /**
+     * Discard the index used to look up Books by name, so that it is rebuilt the next time it is needed. The index is
+     * invalidated automatically when the Books are set with {@link Bible#setBooks(Collection)} or when Books are added
+     * to or removed from the list, but must be invalidated manually if a Book in this Bible is renamed in place.
+     */
+    public void invalidateBookIndex() {
+        bookIndex = null;
+        fuzzyBookIndex = null;
+        ordinalIndex = null;
+        booksVersion++;
+    }
+
+    /**
+     * Get a number which changes every time the index of Book names is invalidated, so that other structures built
+     * from the Books in this Bible can tell when they need to be rebuilt as well.
+     *
+     * @return the current version of this Bible's Books
+     */
+    public int getBooksVersion() {
+        return booksVersion;
+    }
+
+    /**
+     * Get the largest number of typos allowed when looking up a Book by a name that does not otherwise match.
+     *
+     * @return the maximum edit distance, or 0 if misspelled names are not matched
+     */
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    /**
+     * Allow {@link Bible#parseBook(String)} to match misspelled names, such as "Revalation" or "Phillipians", when
+     * no Book matches the name exactly or by prefix. The Book with the name or abbreviation closest to the given name
+     * is chosen, as long as it is within the given number of single-character insertions, deletions or substitutions.
+     * Small distances of 1 or 2 work best, since larger ones will match names which are not misspelled at all.
+     *
+     * @param maxEditDistance the maximum edit distance to allow, or 0 to only match names exactly or by prefix
+     * @throws IllegalArgumentException if maxEditDistance is negative
+     */
+    public void setMaxEditDistance(int maxEditDistance) {
+        if (maxEditDistance < 0) {
+            throw new IllegalArgumentException("The maximum edit distance cannot be negative");
+        }
+        this.maxEditDistance = maxEditDistance;
+    }
+
+    FuzzyBookIndex getFuzzyBookIndex() {
+        FuzzyBookIndex index = fuzzyBookIndex;
+        if (index == null || !index.isBuiltFrom(books)) {
+            index = new FuzzyBookIndex(books);
+            fuzzyBookIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the index which numbers every verse in this Bible in order, built the first time it is needed. Like the
+     * index of Book names, it is rebuilt automatically when the list of Books changes, but must be invalidated
+     * manually with {@link Bible#invalidateBookIndex()} if the chapters of a Book are changed in place.
+     *
+     * @return the index of verse ordinals for the Books in this Bible
+     */
+    public OrdinalIndex getOrdinalIndex() {
+        OrdinalIndex index = ordinalIndex;
+        if (books == null) {
+            return null;
+        }
+        if (index == null || !index.isBuiltFrom(books, booksVersion)) {
+            index = new OrdinalIndex(books, booksVersion);
+            ordinalIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the way this Bible numbers its chapters and verses.
+     *
+     * @return this Bible's versification, which is the {@link Versification#standard() standard} one unless another
+     * has been set
+     */
+    public Versification getVersification() {
+        return (versification != null) ? versification : Versification.standard();
+    }
+
+    /**
+     * Set the way this Bible numbers its chapters and verses, so that References can be translated between it and
+     * Bibles which number them differently.
+     *
+     * @param versification the versification to use, or null for the standard one
+     */
+    public void setVersification(Versification versification) {
+        this.versification = versification;
+    }
+
+    /**
+     * Get the mapping which translates verses from this Bible into another, taking into account any differences in
+     * how the two Bibles number their verses. The most recently used mapping is kept, and is rebuilt automatically if
+     * the Books or versification of either Bible change.
+     *
+     * @param target the Bible to translate verses into
+     * @return the mapping from this Bible to the target
+     * @throws IllegalArgumentException if either Bible has no Books
+     */
+    public VersificationMapping getMappingTo(Bible target) {
+        VersificationMapping current = mapping;
+        if (current == null || !current.isBuiltFrom(this, target)) {
+            current = VersificationMapping.between(this, target);
+            mapping = current;
+        }
+        return current;
+    }
+
+    /**
+     * Find the position of a Book in this Bible's list of Books. Books are found by their location, the same way
+     * they are compared in {@link Book#equals(Object)}, through the {@link Bible#getOrdinalIndex() ordinal index}, so
+     * this takes constant time rather than searching the list.
+     *
+     * @param book the Book to find
+     * @return the position of the first Book with the same location, or -1 if there is none
+     */
+    public int indexOfBook(Book book) {
+        OrdinalIndex index = getOrdinalIndex();
+        return (index != null) ? index.indexOf(book) : -1;
+    }
+
+    /**
+     * Get a Spliterator over the ordinals of every verse in this Bible, in order, which can be turned into a stream
+     * with {@link java.util.stream.StreamSupport#intStream(Spliterator.OfInt, boolean)}. The Spliterator splits evenly
+     * for parallel streams, and ordinals can be turned into References as needed with {@link #referenceAt(int)}.
+     *
+     * @return a Spliterator over every verse in this Bible
+     */
+    public Spliterator.OfInt verses() {
+        OrdinalIndex index = getOrdinalIndex();
+        return new OrdinalSpliterator(0, (index != null) ? index.size() : 0);
+    }
+
+    /**
+     * Create a Reference to the single verse with the given ordinal.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return a Reference to that verse
+     * @throws IndexOutOfBoundsException if the ordinal is not a verse in this Bible
+     * @see OrdinalIndex
+     */
+    public Reference referenceAt(int ordinal) {
+        OrdinalIndex index = getOrdinalIndex();
+        if (index == null || ordinal < 0 || ordinal >= index.size()) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " is not a verse in " + getName());
+        }
+
+        return new Reference.Builder()
+                .setBible(this)
+                .setBook(books.get(index.bookIndexAt(ordinal)))
+                .setChapter(index.chapterAt(ordinal))
+                .setVerses(index.verseAt(ordinal))
+                .create();
+    }
+
+    BookIndex getBookIndex() {
+        BookIndex index = bookIndex;
+        if (index == null || !index.isBuiltFrom(books)) {
+            index = new BookIndex(books);
+            bookIndex = index;
+        }
+        return index;
     }
 
     /**
      * Attemps to parse a given String and determine the name of the book. Failing to find it within
      * the specified books, return nothing, so that the user can either create a blank Book to use
      * instead, throw an exception, or anything else.
+     * <p>
+     * A Book matches if its name or abbreviation starts with the given String, or if the given String starts with its
+     * name or abbreviation, ignoring case. If several Books match, the first one in this Bible is returned. Books are
+     * looked up through a prefix index which is built the first time it is needed, so finding a Book takes time
+     * proportional to the length of the given String, rather than to the number of Books.
+     * <p>
+     * If no Book matches and a {@link Bible#setMaxEditDistance(int) maximum edit distance} has been set, the Book
+     * whose name or abbreviation is closest to the given String within that distance is returned instead.
      *
      * @param bookName the text of the book to attempt to parse
      * @return a Book if the name matches one of the Books in this Bible, null otherwise
      */
     public T parseBook(String bookName) {
-        for (T book : books) {
-            //check equality of the full book name
-            if (bookName.equalsIgnoreCase(book.getName())) {
-                return book;
-            }
-            //check equality of the abbreviation
-            else if (bookName.equalsIgnoreCase(book.getAbbreviation())) {
-                return book;
-            }
+        if (bookName == null || books == null) {
+            return null;
+        }
 
-            //failing equality, check if we have something close
-            else {
-                int nameSize = Math.min(bookName.length(), book.getName().length());
-                int abbrSize = Math.min(bookName.length(), book.getAbbreviation().length());
-
-                if (bookName.substring(0, nameSize).equalsIgnoreCase(book.getName().substring(0, nameSize))) {
-                    return book;
-                }
-                //check equality of the abbreviation
-                else if (bookName.substring(0, abbrSize).equalsIgnoreCase(book.getAbbreviation().substring(0, abbrSize))) {
-                    return book;
-                }
-            }
+        int index = getBookIndex().find(bookName);
+        if (index < 0 && maxEditDistance > 0) {
+            index = getFuzzyBookIndex().find(bookName, maxEditDistance);
+        }
+        return (index >= 0) ? books.get(index) : null;
+    }
+
+    /**
+     * Find the Book in this Bible with the given id, such as to restore a Book which was saved by its id. Books are
+     * looked up through the same index as {@link Bible#parseBook(String)}, so like the names of Books, a Book whose id
+     * is changed in place needs {@link Bible#invalidateBookIndex()}.
+     *
+     * @param id the id of the Book
+     * @return the first Book with exactly that id, or null if there is none
+     */
+    public T getBookById(String id) {
+        if (id == null || books == null) {
+            return null;
+        }
+
+        int index = getBookIndex().findById(id);
+        return (index >= 0) ? books.get(index) : null;
+    }
+
+    /**
+     * Get every Book whose name or abbreviation starts with the given prefix, ignoring case, such as to suggest
+     * completions for a partially typed book name. Books are found through the same prefix index as
+     * {@link Bible#parseBook(String)}.
+     *
+     * @param prefix the start of the book name
+     * @return the matching Books, in the order they appear in this Bible
+     */
+    public List<T> getBooksStartingWith(String prefix) {
+        List<T> matches = new ArrayList<>();
+        if (prefix == null || books == null) {
+            return matches;
+        }
+
+        for (int index : getBookIndex().findAllStartingWith(prefix)) {
+            matches.add(books.get(index));
         }
-        return null;
+        return matches;
     }
 
     /**
@@ -2,8 +2,9 @@ package com.eden.bible;
 
 import com.eden.utils.TextUtils;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A base class for a single book in the Bible.
@@ -13,10 +14,18 @@ public abstract class Book {
     protected String name;
     protected String abbreviation;
     protected int location;
-    protected List<Integer> chapters;
+
+    /**
+     * The number of verses in each chapter, or null when the chapters are not known. Only ever set through
+     * {@link Book#setChapters(int...)}, but it may also be filled in by reflection, such as by Gson.
+     */
+    private int[] chapters;
+
+    //the number of verses before each chapter, built from the chapters array it was made for
+    private transient VerseOffsets verseOffsets;
 
     public Book() {
-        chapters = new ArrayList<>();
+        chapters = new int[0];
     }
 
     /**
@@ -112,10 +121,15 @@ public abstract class Book {
      * @param chapters the count of verses for every chapter in this Book
      */
     public void setChapters(int... chapters) {
-        this.chapters = new ArrayList<>();
-        for (int i : chapters) {
-            this.chapters.add(i);
+        if (chapters == null) {
+            this.chapters = null;
+            this.verseOffsets = null;
+            return;
         }
+
+        int[] copy = chapters.clone();
+        this.chapters = copy;
+        this.verseOffsets = new VerseOffsets(copy);
     }
 
     /**
@@ -127,16 +141,26 @@ public abstract class Book {
      * @param chapters the count of verses for every chapter in this Book
      */
     public void setChapters(List<Integer> chapters) {
-        this.chapters = chapters;
+        if (chapters == null) {
+            setChapters((int[]) null);
+            return;
+        }
+
+        int[] verses = new int[chapters.size()];
+        for (int i = 0; i < verses.length; i++) {
+            Integer count = chapters.get(i);
+            verses[i] = (count != null) ? count : 0;
+        }
+        setChapters(verses);
     }
 
     /**
-     * Get the chapters of this Book
+     * Get the chapters of this Book, as a read-only view of the number of verses in each chapter.
      *
-     * @return the chapters of this Book
+     * @return the chapters of this Book, or null if they are not known
      */
     public List<Integer> getChapters() {
-        return chapters;
+        return (chapters != null) ? new ChapterList(chapters) : null;
     }
 
     /**
@@ -145,7 +169,17 @@ public abstract class Book {
      * @return the number of chapters in this Book, or -1 if chapters is null
      */
     public int numChapters() {
-        return (chapters != null) ? chapters.size() : -1;
+        return (chapters != null) ? chapters.length : -1;
+    }
+
+    /**
+     * Get the total number of verses in this Book.
+     *
+     * @return the number of verses in every chapter of this Book, or -1 if chapters is null
+     */
+    public int numVerses() {
+        int[] chapters = this.chapters;
+        return (chapters != null) ? verseOffsets(chapters)[chapters.length] : -1;
     }
 
     /**
@@ -155,23 +189,50 @@ public abstract class Book {
      * @return the number of verses in this chapter, or -1 if the given chapter cannot be found
      */
     public int numVersesInChapter(int chapter) {
-        if ((chapters != null) &&
-                (chapters.size() != 0) &&
-                (chapter > 0) &&
-                (chapter <= chapters.size())) {
-            return chapters.get(chapter - 1);
+        if ((chapters != null) && (chapter > 0) && (chapter <= chapters.length)) {
+            return chapters[chapter - 1];
         }
         else {
             return -1;
         }
     }
 
+    /**
+     * Get the position of a verse among all the verses of this Book, counting from 0 at the first verse of
+     * the first chapter, such as to find how far through a Book a verse is.
+     *
+     * @param chapter the chapter of the verse, 1-indexed
+     * @param verse   the verse within the chapter, 1-indexed
+     * @return the position of the verse in this Book, or -1 if the verse is not in this Book
+     */
+    public int verseOffset(int chapter, int verse) {
+        int[] chapters = this.chapters;
+        if (chapters == null || chapter < 1 || chapter > chapters.length || verse < 1 || verse > chapters[chapter - 1]) {
+            return -1;
+        }
+        return verseOffsets(chapters)[chapter - 1] + verse - 1;
+    }
+
+    /**
+     * Get the number of verses before each chapter, so that {@code offsets[c]} is the total number of verses in
+     * chapters 1 through c. They are rebuilt if the chapters were replaced without {@link Book#setChapters(int...)}.
+     */
+    private int[] verseOffsets(int[] chapters) {
+        VerseOffsets offsets = verseOffsets;
+        if (offsets == null || offsets.chapters != chapters) {
+            offsets = new VerseOffsets(chapters);
+            verseOffsets = offsets;
+        }
+        return offsets.offsets;
+    }
+
     public boolean validateChapter(int chapter) {
         return (chapter >= 1) && (chapter <= numChapters());
     }
 
     public boolean validateVerseInChapter(int chapter, int verse) {
-        return (numVersesInChapter(chapter) >= 1) && (verse >= 1) && (verse <= numVersesInChapter(chapter));
+        int verses = numVersesInChapter(chapter);
+        return (verses >= 1) && (verse >= 1) && (verse <= verses);
     }
 
     /**
@@ -213,4 +274,39 @@ public abstract class Book {
     public int hashCode() {
         return location;
     }
+
+    private static final class VerseOffsets {
+        private final int[] chapters;
+        private final int[] offsets;
+
+        private VerseOffsets(int[] chapters) {
+            this.chapters = chapters;
+            this.offsets = new int[chapters.length + 1];
+            for (int i = 0; i < chapters.length; i++) {
+                offsets[i + 1] = offsets[i] + chapters[i];
+            }
+        }
+    }
+
+    /**
+     * A read-only List view of the number of verses in each chapter, for callers that expect the
+     * chapters as a List.
+     */
+    private static final class ChapterList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] chapters;
+
+        private ChapterList(int[] chapters) {
+            this.chapters = chapters;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return chapters[index];
+        }
+
+        @Override
+        public int size() {
+            return chapters.length;
+        }
+    }
 }
@@ -0,0 +1,185 @@
+package com.eden.bible;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A case-folded prefix trie over the names and abbreviations of the Books in a Bible, used to look up a Book by name
+ * in time proportional to the length of the name, without allocating anything.
+ * <p>
+ * A lookup has the same semantics as the linear search it replaces: a Book matches if either its name or abbreviation
+ * is a prefix of the input, or the input is a prefix of its name or abbreviation, ignoring case. When several Books
+ * match, the one that comes first in the Bible wins. To answer that in one walk down the trie, every node remembers the
+ * lowest Book index of any key that ends at that node, and the lowest Book index of any key in its subtree.
+ * <p>
+ * Books are also indexed by their exact id, so that a Book can be found by id without searching the list.
+ */
+final class BookIndex {
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final List<?> books;
+    private final int size;
+    private final Node root;
+    private final Map<String, Integer> ids;
+
+    BookIndex(List<? extends Book> books) {
+        this.books = books;
+        this.size = books.size();
+        this.root = new Node();
+        this.ids = new HashMap<>();
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (book == null) {
+                continue;
+            }
+            add(book.getName(), i);
+            add(book.getAbbreviation(), i);
+            if (book.getId() != null) {
+                ids.putIfAbsent(book.getId(), i);
+            }
+        }
+    }
+
+    /**
+     * Whether this index was built from the given list of Books and is still the same size. This catches Books being
+     * replaced with {@link Bible#setBooks(java.util.Collection)} or added to the list directly, but not a Book being
+     * renamed in place, which needs {@link Bible#invalidateBookIndex()}.
+     *
+     * @param books the current list of Books
+     * @return true if this index can still be used for that list
+     */
+    boolean isBuiltFrom(List<?> books) {
+        return this.books == books && this.size == books.size();
+    }
+
+    /**
+     * Find the index of the first Book which matches the given name.
+     *
+     * @param bookName the name to look up
+     * @return the index of the Book in the Bible's list of Books, or -1 if none match
+     */
+    int find(CharSequence bookName) {
+        Node node = root;
+        int best = node.terminal;
+
+        for (int i = 0; i < bookName.length(); i++) {
+            node = node.child(fold(bookName.charAt(i)));
+            if (node == null) {
+                //a name or abbreviation which is a prefix of the input may still have matched
+                return (best != NONE) ? best : -1;
+            }
+            best = Math.min(best, node.terminal);
+        }
+
+        //the input is a prefix of every key in this subtree
+        best = Math.min(best, node.subtree);
+        return (best != NONE) ? best : -1;
+    }
+
+    /**
+     * Find the index of the first Book with exactly the given id.
+     *
+     * @param id the id to look up
+     * @return the index of the Book in the Bible's list of Books, or -1 if none has that id
+     */
+    int findById(String id) {
+        Integer index = ids.get(id);
+        return (index != null) ? index : -1;
+    }
+
+    /**
+     * Find every Book with a name or abbreviation that starts with the given prefix.
+     *
+     * @param prefix the start of the names to look for
+     * @return the indices of the matching Books in the Bible's list of Books, in ascending order
+     */
+    int[] findAllStartingWith(CharSequence prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(fold(prefix.charAt(i)));
+        }
+        if (node == null) {
+            return new int[0];
+        }
+
+        BitSet found = new BitSet(size);
+        collect(node, found);
+        return found.stream().toArray();
+    }
+
+    private static void collect(Node node, BitSet found) {
+        for (int bookIndex : node.books) {
+            found.set(bookIndex);
+        }
+        for (Node child : node.children) {
+            collect(child, found);
+        }
+    }
+
+    private void add(String key, int bookIndex) {
+        if (key == null) {
+            return;
+        }
+
+        Node node = root;
+        node.subtree = Math.min(node.subtree, bookIndex);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(fold(key.charAt(i)));
+            node.subtree = Math.min(node.subtree, bookIndex);
+        }
+        node.terminal = Math.min(node.terminal, bookIndex);
+        node.books = Arrays.copyOf(node.books, node.books.length + 1);
+        node.books[node.books.length - 1] = bookIndex;
+    }
+
+    /**
+     * Fold a character so that two characters are equal after folding exactly when
+     * {@link String#equalsIgnoreCase(String)} considers them equal.
+     *
+     * @param ch the character to fold
+     * @return the folded character
+     */
+    static char fold(char ch) {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int terminal = NONE;
+        private int subtree = NONE;
+        private int[] books = new int[0];
+
+        private Node child(char key) {
+            int i = Arrays.binarySearch(keys, key);
+            return (i >= 0) ? children[i] : null;
+        }
+
+        private Node getOrAddChild(char key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                return children[i];
+            }
+
+            int insertAt = -(i + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node child = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+
+            return child;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.eden.bible;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A BK-tree over the case-folded names and abbreviations of the Books in a Bible, used to find the Book closest to a
+ * misspelled name, such as "Revalation" or "Phillipians", within a bounded Levenshtein distance.
+ * <p>
+ * Every child of a node in a BK-tree is stored under its distance from that node. Since edit distance obeys the
+ * triangle inequality, a search within distance k of a name only needs to visit the children whose distance from the
+ * current node is within k of the name's own distance from that node, so most of the tree is never looked at.
+ */
+final class FuzzyBookIndex {
+    private final List<?> books;
+    private final int size;
+    private Node root;
+
+    FuzzyBookIndex(List<? extends Book> books) {
+        this.books = books;
+        this.size = books.size();
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (book == null) {
+                continue;
+            }
+            add(book.getName(), i);
+            add(book.getAbbreviation(), i);
+        }
+    }
+
+    /**
+     * Whether this index was built from the given list of Books and is still the same size.
+     *
+     * @param books the current list of Books
+     * @return true if this index can still be used for that list
+     */
+    boolean isBuiltFrom(List<?> books) {
+        return this.books == books && this.size == books.size();
+    }
+
+    /**
+     * Find the Book with the name or abbreviation closest to the given name, within a maximum edit distance. When
+     * several Books are equally close, the one that comes first in the Bible wins.
+     *
+     * @param bookName        the name to look up
+     * @param maxEditDistance the largest number of single-character insertions, deletions or substitutions allowed
+     * @return the index of the closest Book in the Bible's list of Books, or -1 if none are close enough
+     */
+    int find(CharSequence bookName, int maxEditDistance) {
+        if (root == null) {
+            return -1;
+        }
+
+        String query = fold(bookName);
+        int bestDistance = maxEditDistance + 1;
+        int bestBook = -1;
+
+        int[] previous = new int[query.length() + 1];
+        int[] current = new int[query.length() + 1];
+
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, node.key, previous, current);
+
+            if (distance < bestDistance || (distance == bestDistance && node.book < bestBook)) {
+                bestDistance = distance;
+                bestBook = node.book;
+            }
+
+            //only children between (distance - k) and (distance + k) can be within k of the query
+            int from = Math.max(1, distance - maxEditDistance);
+            int to = Math.min(node.children.length - 1, distance + maxEditDistance);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+
+        return (bestDistance <= maxEditDistance) ? bestBook : -1;
+    }
+
+    private void add(String name, int bookIndex) {
+        if (name == null) {
+            return;
+        }
+
+        String key = fold(name);
+        if (root == null) {
+            root = new Node(key, bookIndex);
+            return;
+        }
+
+        int[] previous = new int[key.length() + 1];
+        int[] current = new int[key.length() + 1];
+
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key, previous, current);
+            if (distance == 0) {
+                //the same key for two Books resolves to the first of them
+                node.book = Math.min(node.book, bookIndex);
+                return;
+            }
+
+            if (distance >= node.children.length) {
+                node.children = Arrays.copyOf(node.children, distance + 1);
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node(key, bookIndex);
+                return;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    /**
+     * Compute the Levenshtein distance between two Strings, using the given rows as scratch space.
+     */
+    private static int distance(String a, String b, int[] previous, int[] current) {
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            char ch = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int substitution = previous[i - 1] + ((a.charAt(i - 1) == ch) ? 0 : 1);
+                current[i] = Math.min(substitution, Math.min(previous[i], current[i - 1]) + 1);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[a.length()];
+    }
+
+    private static String fold(CharSequence name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            sb.append(BookIndex.fold(name.charAt(i)));
+        }
+        return sb.toString();
+    }
+
+    private static final class Node {
+        private final String key;
+        private int book;
+        private Node[] children = new Node[0];
+
+        private Node(String key, int book) {
+            this.key = key;
+            this.book = book;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.eden.bible;
+
+import com.eden.defaults.DefaultBible;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers every verse in a Bible in order, so that each verse has a dense ordinal: the first verse of the first Book is
+ * 0, and the last verse of the last Book is {@link #size()} - 1. The ordinals are built from prefix sums over the
+ * number of verses in each chapter, so a (book, chapter, verse) location can be turned into an ordinal and back again
+ * in constant time, and References can be compared or stepped through with simple integer arithmetic.
+ * <p>
+ * Books are identified by their position in the list of Books the index was built from. An index is a snapshot of the
+ * chapters of those Books when it was built, and is never modified afterward, so it may be shared freely between
+ * threads.
+ *
+ * @see Bible#getOrdinalIndex()
+ */
+public final class OrdinalIndex {
+    //the location given to a missing Book, which can never be found by location
+    private static final int NO_LOCATION = Integer.MIN_VALUE;
+
+    private static volatile OrdinalIndex defaultCanon;
+
+    private final List<?> books;
+    private final int booksVersion;
+
+    private final int[] locations;
+    private final boolean canonicallyOrdered;
+
+    //the chapter slot of the first chapter of each Book, with one extra entry for the end of the last Book
+    private final int[] bookFirstSlot;
+    //the ordinal of the first verse of each chapter slot, with one extra entry for the end of the last chapter
+    private final int[] slotStart;
+    //the Book each chapter slot belongs to
+    private final int[] slotBook;
+    //the chapter slot each ordinal belongs to
+    private final int[] ordinalSlot;
+
+    private final int minLocation;
+    private final int[] bookByLocation;
+    private final Map<Integer, Integer> bookByLocationMap;
+
+    /**
+     * Build an index over the chapters of the given Books. Books without chapters take up no ordinals.
+     *
+     * @param books the Books to index, in their order within the Bible
+     */
+    public OrdinalIndex(List<? extends Book> books) {
+        this(books, 0);
+    }
+
+    OrdinalIndex(List<? extends Book> books, int booksVersion) {
+        this(books, booksVersion, locationsOf(books), verseCountsOf(books));
+    }
+
+    /**
+     * Build an index directly from the number of verses in each chapter of each Book, such as
+     * {@link DefaultBible#defaultBookVerseCount}. The Books are given the locations 1 through the number of Books.
+     *
+     * @param verseCounts the number of verses in each chapter, for each Book
+     */
+    public OrdinalIndex(int[][] verseCounts) {
+        this(null, 0, sequentialLocations(verseCounts.length), verseCounts);
+    }
+
+    private OrdinalIndex(List<?> books, int booksVersion, int[] locations, int[][] verseCounts) {
+        this.books = books;
+        this.booksVersion = booksVersion;
+        this.locations = locations;
+
+        int bookCount = verseCounts.length;
+        int chapterCount = 0;
+        int verseCount = 0;
+        for (int[] chapters : verseCounts) {
+            chapterCount += chapters.length;
+            for (int verses : chapters) {
+                verseCount += Math.max(verses, 0);
+            }
+        }
+
+        bookFirstSlot = new int[bookCount + 1];
+        slotStart = new int[chapterCount + 1];
+        slotBook = new int[chapterCount];
+        ordinalSlot = new int[verseCount];
+
+        int slot = 0;
+        int ordinal = 0;
+        for (int book = 0; book < bookCount; book++) {
+            bookFirstSlot[book] = slot;
+            for (int verses : verseCounts[book]) {
+                slotStart[slot] = ordinal;
+                slotBook[slot] = book;
+                for (int verse = 0; verse < verses; verse++) {
+                    ordinalSlot[ordinal++] = slot;
+                }
+                slot++;
+            }
+        }
+        bookFirstSlot[bookCount] = slot;
+        slotStart[chapterCount] = ordinal;
+
+        //map locations to Books with a flat table when they are reasonably dense, which they nearly always are
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        boolean ordered = true;
+        for (int i = 0; i < bookCount; i++) {
+            ordered = ordered && (i == 0 || locations[i] == locations[i - 1] + 1);
+            if (locations[i] == NO_LOCATION) {
+                continue;
+            }
+            min = Math.min(min, locations[i]);
+            max = Math.max(max, locations[i]);
+        }
+        this.canonicallyOrdered = ordered;
+
+        if (min <= max && (long) max - min < 4L * bookCount + 64) {
+            minLocation = min;
+            bookByLocation = new int[max - min + 1];
+            for (int i = 0; i < bookByLocation.length; i++) {
+                bookByLocation[i] = -1;
+            }
+            for (int i = bookCount - 1; i >= 0; i--) {
+                if (locations[i] != NO_LOCATION) {
+                    bookByLocation[locations[i] - min] = i;
+                }
+            }
+            bookByLocationMap = null;
+        }
+        else {
+            minLocation = 0;
+            bookByLocation = null;
+            bookByLocationMap = new HashMap<>();
+            for (int i = bookCount - 1; i >= 0; i--) {
+                if (locations[i] != NO_LOCATION) {
+                    bookByLocationMap.put(locations[i], i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index of the 66 Books of the default Protestant canon, as given by {@link DefaultBible}.
+     *
+     * @return the shared index for the default canon
+     */
+    public static OrdinalIndex defaultCanon() {
+        OrdinalIndex index = defaultCanon;
+        if (index == null) {
+            index = new OrdinalIndex(DefaultBible.defaultBookVerseCount);
+            defaultCanon = index;
+        }
+        return index;
+    }
+
+    /**
+     * Whether this index was built from the given list of Books, and the Books have not changed since.
+     *
+     * @param books        the current list of Books
+     * @param booksVersion the current {@link Bible#getBooksVersion() version} of the Books
+     * @return true if this index can still be used for that list
+     */
+    boolean isBuiltFrom(List<?> books, int booksVersion) {
+        return this.books == books && this.booksVersion == booksVersion && locations.length == books.size();
+    }
+
+    /**
+     * Whether the locations of the Books in this index start anywhere and then increase by exactly one from each Book
+     * to the next, so that ordering by ordinal is the same as ordering by location, chapter and verse.
+     */
+    boolean isCanonicallyOrdered() {
+        return canonicallyOrdered;
+    }
+
+    /**
+     * Get the number of verses in this index.
+     *
+     * @return the number of verses, which is one more than the largest ordinal
+     */
+    public int size() {
+        return ordinalSlot.length;
+    }
+
+    /**
+     * Get the number of Books in this index.
+     *
+     * @return the number of Books
+     */
+    public int bookCount() {
+        return locations.length;
+    }
+
+    /**
+     * Get the number of chapters in a Book.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @return the number of chapters, or -1 if there is no such Book
+     */
+    public int chapterCount(int bookIndex) {
+        if (bookIndex < 0 || bookIndex >= locations.length) {
+            return -1;
+        }
+        return bookFirstSlot[bookIndex + 1] - bookFirstSlot[bookIndex];
+    }
+
+    /**
+     * Get the number of verses in a chapter of a Book.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @param chapter   the chapter, 1-indexed
+     * @return the number of verses, or -1 if there is no such chapter
+     */
+    public int verseCount(int bookIndex, int chapter) {
+        int slot = slot(bookIndex, chapter);
+        return (slot >= 0) ? slotStart[slot + 1] - slotStart[slot] : -1;
+    }
+
+    /**
+     * Find the position in this index of the Book with the same location as the given Book.
+     *
+     * @param book the Book to find
+     * @return the position of the Book, or -1 if no Book in this index has its location
+     */
+    public int indexOf(Book book) {
+        return (book != null) ? indexOfLocation(book.getLocation()) : -1;
+    }
+
+    /**
+     * Find the position in this index of the first Book with the given location.
+     *
+     * @param location the {@link Book#getLocation() location} of the Book
+     * @return the position of the Book, or -1 if no Book in this index has that location
+     */
+    public int indexOfLocation(int location) {
+        if (location == NO_LOCATION) {
+            return -1;
+        }
+        else if (bookByLocation != null) {
+            long offset = (long) location - minLocation;
+            return (offset >= 0 && offset < bookByLocation.length) ? bookByLocation[(int) offset] : -1;
+        }
+        else {
+            Integer index = bookByLocationMap.get(location);
+            return (index != null) ? index : -1;
+        }
+    }
+
+    /**
+     * Get the location of a Book in this index.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @return the location of the Book
+     * @throws IndexOutOfBoundsException if there is no such Book
+     */
+    public int locationOf(int bookIndex) {
+        return locations[bookIndex];
+    }
+
+    /**
+     * Get the ordinal of a single verse.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @param chapter   the chapter, 1-indexed
+     * @param verse     the verse, 1-indexed
+     * @return the ordinal of the verse, or -1 if there is no such verse
+     */
+    public int ordinal(int bookIndex, int chapter, int verse) {
+        int slot = slot(bookIndex, chapter);
+        if (slot < 0 || verse < 1 || verse > slotStart[slot + 1] - slotStart[slot]) {
+            return -1;
+        }
+        return slotStart[slot] + verse - 1;
+    }
+
+    /**
+     * Get the ordinal of the first verse in a chapter.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @param chapter   the chapter, 1-indexed
+     * @return the ordinal of the first verse, or -1 if there is no such chapter or it has no verses
+     */
+    public int firstOrdinalOfChapter(int bookIndex, int chapter) {
+        return ordinal(bookIndex, chapter, 1);
+    }
+
+    /**
+     * Get the ordinal of the last verse in a chapter.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @param chapter   the chapter, 1-indexed
+     * @return the ordinal of the last verse, or -1 if there is no such chapter or it has no verses
+     */
+    public int lastOrdinalOfChapter(int bookIndex, int chapter) {
+        return ordinal(bookIndex, chapter, verseCount(bookIndex, chapter));
+    }
+
+    /**
+     * Get the ordinal of the first verse in a Book.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @return the ordinal of the first verse, or -1 if there is no such Book or it has no verses
+     */
+    public int firstOrdinalOfBook(int bookIndex) {
+        if (bookIndex < 0 || bookIndex >= locations.length || bookStart(bookIndex) == bookEnd(bookIndex)) {
+            return -1;
+        }
+        return bookStart(bookIndex);
+    }
+
+    /**
+     * Get the ordinal of the last verse in a Book.
+     *
+     * @param bookIndex the position of the Book in this index
+     * @return the ordinal of the last verse, or -1 if there is no such Book or it has no verses
+     */
+    public int lastOrdinalOfBook(int bookIndex) {
+        if (bookIndex < 0 || bookIndex >= locations.length || bookStart(bookIndex) == bookEnd(bookIndex)) {
+            return -1;
+        }
+        return bookEnd(bookIndex) - 1;
+    }
+
+    //the ordinal of the first verse of a Book, or of the Book after it if it has no verses
+    int bookStart(int bookIndex) {
+        return slotStart[bookFirstSlot[bookIndex]];
+    }
+
+    //the ordinal just past the last verse of a Book
+    int bookEnd(int bookIndex) {
+        return slotStart[bookFirstSlot[bookIndex + 1]];
+    }
+
+    /**
+     * Get the position in this index of the Book containing a verse.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return the position of the Book
+     * @throws IndexOutOfBoundsException if the ordinal is not between 0 and {@link #size()} - 1
+     */
+    public int bookIndexAt(int ordinal) {
+        return slotBook[ordinalSlot[ordinal]];
+    }
+
+    /**
+     * Get the chapter containing a verse.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return the chapter, 1-indexed
+     * @throws IndexOutOfBoundsException if the ordinal is not between 0 and {@link #size()} - 1
+     */
+    public int chapterAt(int ordinal) {
+        int slot = ordinalSlot[ordinal];
+        return slot - bookFirstSlot[slotBook[slot]] + 1;
+    }
+
+    /**
+     * Get the number of a verse within its chapter.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return the verse, 1-indexed
+     * @throws IndexOutOfBoundsException if the ordinal is not between 0 and {@link #size()} - 1
+     */
+    public int verseAt(int ordinal) {
+        return ordinal - slotStart[ordinalSlot[ordinal]] + 1;
+    }
+
+    private int slot(int bookIndex, int chapter) {
+        if (bookIndex < 0 || bookIndex >= locations.length) {
+            return -1;
+        }
+        int slot = bookFirstSlot[bookIndex] + chapter - 1;
+        return (chapter >= 1 && slot < bookFirstSlot[bookIndex + 1]) ? slot : -1;
+    }
+
+    private static int[] locationsOf(List<? extends Book> books) {
+        int[] locations = new int[books.size()];
+        for (int i = 0; i < locations.length; i++) {
+            Book book = books.get(i);
+            locations[i] = (book != null) ? book.getLocation() : NO_LOCATION;
+        }
+        return locations;
+    }
+
+    private static int[][] verseCountsOf(List<? extends Book> books) {
+        int[][] verseCounts = new int[books.size()][];
+        for (int i = 0; i < verseCounts.length; i++) {
+            Book book = books.get(i);
+            int chapters = (book != null) ? book.numChapters() : -1;
+            if (chapters < 0) {
+                verseCounts[i] = new int[0];
+                continue;
+            }
+
+            verseCounts[i] = new int[chapters];
+            for (int j = 0; j < chapters; j++) {
+                verseCounts[i][j] = Math.max(book.numVersesInChapter(j + 1), 0);
+            }
+        }
+        return verseCounts;
+    }
+
+    private static int[] sequentialLocations(int count) {
+        int[] locations = new int[count];
+        for (int i = 0; i < count; i++) {
+            locations[i] = i + 1;
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,84 @@
+package com.eden.bible;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A Spliterator over a range of verse {@link OrdinalIndex ordinals}, such as every verse in a Bible or every verse
+ * between two References. Only the ordinals are produced, so nothing is allocated per verse until the caller turns an
+ * ordinal into a Reference, for example with {@link Bible#referenceAt(int)}.
+ * <p>
+ * Ranges are split exactly in half, so a parallel stream over a whole Bible divides its verses evenly between threads
+ * regardless of how the verses are spread among chapters and Books.
+ *
+ * @see Bible#verses()
+ * @see Reference#rangeTo(Reference)
+ */
+public final class OrdinalSpliterator implements Spliterator.OfInt {
+    private static final int CHARACTERISTICS = ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+
+    private int next;
+    private final int end;
+
+    /**
+     * Create a Spliterator over the ordinals from one ordinal up to, but not including, another.
+     *
+     * @param from the first ordinal, inclusive
+     * @param to   the last ordinal, exclusive
+     */
+    public OrdinalSpliterator(int from, int to) {
+        this.next = from;
+        this.end = Math.max(from, to);
+    }
+
+    @Override
+    public OfInt trySplit() {
+        int middle = (next + end) >>> 1;
+        if (middle <= next) {
+            return null;
+        }
+
+        OrdinalSpliterator prefix = new OrdinalSpliterator(next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (next >= end) {
+            return false;
+        }
+        action.accept(next++);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        int ordinal = next;
+        next = end;
+        for (; ordinal < end; ordinal++) {
+            action.accept(ordinal);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    /**
+     * Ordinals are sorted in their natural order.
+     *
+     * @return null
+     */
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+}
@@ -28,13 +28,16 @@ public class Passage extends AbstractVerse {
 
         Class<? extends Verse> verseClass = getVerseClass();
 
+        //every verse is in the same Book and chapter, so one Builder can be reused for all of them
+        Reference.Builder builder = new Reference.Builder()
+                .setBook(this.reference.getBook())
+                .setChapter(this.reference.getChapter());
+
         this.verses = new ArrayList<>();
-        for (Integer verseNum : this.reference.getVerses()) {
+        for (int i = 0; i < this.reference.verseCount(); i++) {
+            int verseNum = this.reference.verseAt(i);
             try {
-                Reference ref = new Reference.Builder()
-                        .setBook(this.reference.getBook())
-                        .setChapter(this.reference.getChapter())
-                        .setVerses(verseNum).create();
+                Reference ref = builder.setVerses(verseNum).create();
 
                 Verse verse = verseClass.getConstructor(Reference.class).newInstance(ref);
 
@@ -1,5 +1,7 @@
 package com.eden.bible;
 
+import com.eden.parser.ParseCache;
+import com.eden.parser.ParseResult;
 import com.eden.parser.ReferenceParser;
 import com.eden.simple.SimpleBible;
 import com.eden.simple.SimpleBook;
@@ -11,11 +13,16 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
 
 /**
  * A class that 'points' to a particular location in the Bible. A reference location never changes:
@@ -39,7 +46,11 @@ public final class Reference implements Comparable<Reference> {
     private final Book book;
     private final int chapter;
 
-    private final List<Integer> verses;
+    //sorted, without duplicates. Never exposed directly, since a Reference cannot be modified once created
+    private final int[] verses;
+    private List<Integer> verseList;
+    private int hash;
+    private String string;
 
     /**
      * Reference constructor is private. A Reference can only be created with a Builder.
@@ -50,13 +61,23 @@ public final class Reference implements Comparable<Reference> {
      * @param verses
      * @see Reference.Builder
      */
-    private Reference(Bible bible, Book book, int chapter, ArrayList<Integer> verses) {
+    private Reference(Bible bible, Book book, int chapter, int[] verses, int verseCount) {
         this.bible = bible;
         this.book = book;
         this.chapter = chapter;
 
-        Collections.sort(verses);
-        this.verses = Collections.unmodifiableList(verses);
+        //copy out of the Builder's buffer, so that reusing the Builder can never change this Reference
+        int[] sorted = Arrays.copyOf(verses, verseCount);
+        Arrays.sort(sorted);
+
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        this.verses = (count == sorted.length) ? sorted : Arrays.copyOf(sorted, count);
     }
 
     /**
@@ -87,77 +108,254 @@ public final class Reference implements Comparable<Reference> {
     }
 
     /**
-     * Get the list of verses set with this Reference.
+     * Get the list of verses set with this Reference, in ascending order. The list is an unmodifiable
+     * view of the verses, and boxes each verse as it is read, so prefer {@link #verseCount()} and
+     * {@link #verseAt(int)} when iterating over many References.
      *
      * @return the reference's verses
      */
     public List<Integer> getVerses() {
+        if (verseList == null) {
+            verseList = new VerseList(verses);
+        }
+        return verseList;
+    }
+
+    int[] verseArray() {
         return verses;
     }
 
+    /**
+     * Get the number of verses set with this Reference.
+     *
+     * @return the number of verses
+     */
+    public int verseCount() {
+        return verses.length;
+    }
+
+    /**
+     * Get a verse set with this Reference by its position in ascending order.
+     *
+     * @param index the position of the verse, from 0 to {@link #verseCount()} - 1
+     * @return the verse number at that position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int verseAt(int index) {
+        if (index < 0 || index >= verses.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + verses.length);
+        }
+        return verses[index];
+    }
+
+    /**
+     * Whether the given verse is one of the verses set with this Reference.
+     *
+     * @param verse the verse number to look for
+     * @return true if this Reference contains the verse
+     */
+    public boolean containsVerse(int verse) {
+        return Arrays.binarySearch(verses, verse) >= 0;
+    }
+
+    /**
+     * Pass each verse set with this Reference to the given action, in ascending order.
+     *
+     * @param action the action to perform on each verse number
+     */
+    public void forEachVerse(IntConsumer action) {
+        for (int verse : verses) {
+            action.accept(verse);
+        }
+    }
+
     public int getFinalVerse() {
-        return (verses.size() > 0)
-                ? verses.get(verses.size() - 1)
+        return (verses.length > 0)
+                ? verses[verses.length - 1]
                 : 1;
     }
 
     public int getFirstVerse() {
-        return (verses.size() > 0)
-                ? verses.get(0)
+        return (verses.length > 0)
+                ? verses[0]
                 : 1;
     }
 
+    /**
+     * Get the ordinal of the first verse of this Reference within its Bible, which numbers every verse in the
+     * Bible in order starting from 0.
+     *
+     * @return the ordinal of the first verse, or -1 if this Reference cannot be found in its Bible
+     * @see OrdinalIndex
+     */
+    public int firstOrdinal() {
+        OrdinalIndex index = ordinalIndex();
+        return (index != null) ? index.ordinal(index.indexOf(book), chapter, getFirstVerse()) : -1;
+    }
+
+    /**
+     * Get the ordinal of the final verse of this Reference within its Bible, which numbers every verse in the
+     * Bible in order starting from 0.
+     *
+     * @return the ordinal of the final verse, or -1 if this Reference cannot be found in its Bible
+     * @see OrdinalIndex
+     */
+    public int lastOrdinal() {
+        OrdinalIndex index = ordinalIndex();
+        return (index != null) ? index.ordinal(index.indexOf(book), chapter, getFinalVerse()) : -1;
+    }
+
+    /**
+     * Get a Spliterator over the ordinals of every verse from the first verse of this Reference through the final
+     * verse of another, crossing chapters and Books as needed. Ordinals can be turned into References as needed with
+     * {@link Bible#referenceAt(int)}.
+     *
+     * @param end the Reference to stop at, which must be in the same Bible
+     * @return a Spliterator over the verses, which is empty if end comes before this Reference
+     * @throws IllegalArgumentException if end is from another Bible, or either Reference cannot be found in the Bible
+     */
+    public Spliterator.OfInt rangeTo(Reference end) {
+        if (end.bible != bible) {
+            throw new IllegalArgumentException("Cannot find the range from " + this + " to " + end + " in another Bible");
+        }
+
+        OrdinalIndex index = ordinalIndex();
+        int from = firstOrdinal();
+        int to = (index != null && end.book != null)
+                ? index.ordinal(index.indexOf(end.book), end.chapter, end.getFinalVerse())
+                : -1;
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("Cannot find the range from " + this + " to " + end);
+        }
+
+        return new OrdinalSpliterator(from, to + 1);
+    }
+
+    private OrdinalIndex ordinalIndex() {
+        return (bible != null && book != null) ? bible.getOrdinalIndex() : null;
+    }
+
+    /**
+     * Get the canonical instance of this Reference from the {@link ReferencePool#getDefault() default pool}, so that
+     * many equal References can share one instance. The pooled instance is equal to this Reference, and has the same
+     * Bible and Book. A Reference which cannot be pooled, such as one without a Bible, is returned as it is.
+     *
+     * @return the pooled Reference
+     * @see ReferencePool
+     */
+    public Reference intern() {
+        return ReferencePool.getDefault().intern(this);
+    }
+
     /**
      * Get a well-formatted String representation of this Reference. It contains all information
      * except the set Bible, and can be parsed in a Builder to create an equivalent object, assuming
      * the same Bible is set on that Builder as well.
+     * <p>
+     * Since a Reference cannot be modified, the String is only formatted the first time it is needed.
+     * If the name of the Book is changed afterward, use {@link #formatTo(StringBuilder)} to get the
+     * Reference with its new name.
      *
      * @return a well-formatted String representation of this Reference
      */
     @Override
     public String toString() {
-        String refString = book.getName();
+        String result = string;
+        if (result == null) {
+            result = formatTo(new StringBuilder(32)).toString();
+            string = result;
+        }
+        return result;
+    }
+
+    /**
+     * Append the same well-formatted representation of this Reference as {@link #toString()} to the
+     * given StringBuilder, such as when formatting many References into one String.
+     *
+     * @param sb the StringBuilder to append to
+     * @return the given StringBuilder, for chaining
+     */
+    public StringBuilder formatTo(StringBuilder sb) {
+        try {
+            formatTo((Appendable) sb);
+        }
+        catch (IOException e) {
+            //a StringBuilder never throws
+            throw new IllegalStateException(e);
+        }
+        return sb;
+    }
 
-        if (TextUtils.isEmpty(refString)) { return ""; }
+    /**
+     * Append the same well-formatted representation of this Reference as {@link #toString()} to the
+     * given Appendable, such as a Writer.
+     *
+     * @param out the Appendable to append to
+     * @return the given Appendable, for chaining
+     * @throws IOException if the Appendable cannot be appended to
+     */
+    public Appendable formatTo(Appendable out) throws IOException {
+        String bookName = book.getName();
 
-        refString += " " + chapter;
+        if (TextUtils.isEmpty(bookName)) { return out; }
 
-        if (verses.size() == 0) { return refString; }
+        out.append(bookName).append(' ');
+        appendNumber(out, chapter);
 
-        refString += ":";
+        if (verses.length == 0) { return out; }
 
-        refString += verses.get(0);
-        int lastVerse = verses.get(0);
+        out.append(':');
+        appendNumber(out, verses[0]);
+        int lastVerse = verses[0];
 
         int i = 1;
-        while (i < verses.size()) {
-            if (verses.get(i) == lastVerse + 1) {
-                refString += "-";
-                while (true) {
-                    if (i < verses.size() && verses.get(i) == lastVerse + 1) {
-                        lastVerse++;
-                        i++;
-                    }
-                    else {
-                        refString += Integer.toString(lastVerse);
-                        break;
-                    }
+        while (i < verses.length) {
+            if (verses[i] == lastVerse + 1) {
+                out.append('-');
+                while (i < verses.length && verses[i] == lastVerse + 1) {
+                    lastVerse++;
+                    i++;
                 }
+                appendNumber(out, lastVerse);
             }
             else {
-                refString += ", " + verses.get(i);
-                lastVerse = verses.get(i);
+                out.append(", ");
+                appendNumber(out, verses[i]);
+                lastVerse = verses[i];
                 i++;
             }
         }
 
-        return refString;
+        return out;
+    }
+
+    private static void appendNumber(Appendable out, int number) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(number);
+        }
+        else if (number >= 0 && number < 10) {
+            out.append((char) ('0' + number));
+        }
+        else {
+            out.append(Integer.toString(number));
+        }
     }
 
     public Reference.Builder next(int type) {
         Reference.Builder builder = new Reference.Builder();
         builder.setBible(this.bible);
 
+        //when this Reference can be found in its Bible, step through the verse ordinals directly
+        OrdinalIndex index = ordinalIndex();
+        int ordinal = (index != null && index.size() > 0) ? lastOrdinal() : -1;
+        if (ordinal >= 0 && (type == TYPE_VERSE || type == TYPE_CHAPTER)) {
+            if (type == TYPE_CHAPTER) {
+                ordinal = index.lastOrdinalOfChapter(index.bookIndexAt(ordinal), chapter);
+            }
+            ordinal = (ordinal + 1 < index.size()) ? ordinal + 1 : 0;
+            return atOrdinal(builder, index, ordinal, type);
+        }
+
         if (type == TYPE_VERSE) {
             int nextVerse = nextVerse();
 
@@ -195,6 +393,21 @@ public final class Reference implements Comparable<Reference> {
         return builder;
     }
 
+    /**
+     * Point the Builder at the verse with the given ordinal, or at its whole chapter.
+     */
+    private Reference.Builder atOrdinal(Reference.Builder builder, OrdinalIndex index, int ordinal, int type) {
+        builder.setBook((Book) bible.getBooks().get(index.bookIndexAt(ordinal)));
+        builder.setChapter(index.chapterAt(ordinal));
+        if (type == TYPE_VERSE) {
+            builder.setVerses(index.verseAt(ordinal));
+        }
+        else {
+            builder.setDefaultVerses();
+        }
+        return builder;
+    }
+
     /**
      * Return the next Book after the one in this Reference based on the given Bible. If the current
      * books is the last in the Bible, return the first Book in the given Bible. If the given Bible
@@ -203,14 +416,12 @@ public final class Reference implements Comparable<Reference> {
      * @return the next Book in the Bible after the one in this Reference
      */
     private Book nextBook() {
-        if (bible.getBooks() != null && bible.getBooks().size() > 0) {
-            for (int i = 0; i < bible.getBooks().size(); i++) {
-                if (bible.getBooks().get(i).equals(this.book)) {
-                    return (i < bible.getBooks().size() - 1)
-                            ? (Book) bible.getBooks().get(i + 1)
-                            : (Book) bible.getBooks().get(0);
-                }
-            }
+        List<?> books = bible.getBooks();
+        int i = (books != null && books.size() > 0) ? bible.indexOfBook(this.book) : -1;
+        if (i >= 0) {
+            return (i < books.size() - 1)
+                    ? (Book) books.get(i + 1)
+                    : (Book) books.get(0);
         }
 
         return this.book;
@@ -245,12 +456,23 @@ public final class Reference implements Comparable<Reference> {
         Reference.Builder builder = new Reference.Builder();
         builder.setBible(this.bible);
 
+        //when this Reference can be found in its Bible, step through the verse ordinals directly
+        OrdinalIndex index = ordinalIndex();
+        int ordinal = (index != null && index.size() > 0) ? firstOrdinal() : -1;
+        if (ordinal >= 0 && (type == TYPE_VERSE || type == TYPE_CHAPTER)) {
+            if (type == TYPE_CHAPTER) {
+                ordinal = index.firstOrdinalOfChapter(index.bookIndexAt(ordinal), chapter);
+            }
+            ordinal = (ordinal > 0) ? ordinal - 1 : index.size() - 1;
+            return atOrdinal(builder, index, ordinal, type);
+        }
+
         if (type == TYPE_VERSE) {
             int previousVerse = previousVerse();
 
             if (getFirstVerse() == 1) {
                 builder = previous(TYPE_CHAPTER);
-                builder.setVerses(builder.getBook().numVersesInChapter(builder.getBook().getChapters().size() - 1));
+                builder.setVerses(builder.getBook().numVersesInChapter(builder.getBook().numChapters() - 1));
             }
             else {
                 builder.setBook(this.book);
@@ -261,7 +483,7 @@ public final class Reference implements Comparable<Reference> {
         else if (type == TYPE_CHAPTER) {
             if (this.chapter == 1) {
                 builder = previous(TYPE_BOOK);
-                builder.setChapter(builder.getBook().getChapters().get(builder.getBook().getChapters().size() - 1));
+                builder.setChapter(builder.getBook().numVersesInChapter(builder.getBook().numChapters()));
             }
             else {
                 int previousChapter = previousChapter();
@@ -288,14 +510,12 @@ public final class Reference implements Comparable<Reference> {
      * @return the previous Book in the Bible before the one in this Reference
      */
     private Book previousBook() {
-        if (bible.getBooks() != null && bible.getBooks().size() > 0) {
-            for (int i = 0; i < bible.getBooks().size(); i++) {
-                if (bible.getBooks().get(i).equals(this.book)) {
-                    return (i >= 1)
-                            ? (Book) bible.getBooks().get(i - 1)
-                            : (Book) bible.getBooks().get(bible.getBooks().size() - 1);
-                }
-            }
+        List<?> books = bible.getBooks();
+        int i = (books != null && books.size() > 0) ? bible.indexOfBook(this.book) : -1;
+        if (i >= 0) {
+            return (i >= 1)
+                    ? (Book) books.get(i - 1)
+                    : (Book) books.get(books.size() - 1);
         }
 
         return this.book;
@@ -326,8 +546,8 @@ public final class Reference implements Comparable<Reference> {
      * @return the next verse in the Bible after the one in this Reference
      */
     private int previousVerse() {
-        if (this.verses.get(0) > 1) {
-            return this.verses.get(0) - 1;
+        if (getFirstVerse() > 1) {
+            return getFirstVerse() - 1;
         }
         else {
             if (this.chapter > 1) {
@@ -361,83 +581,115 @@ public final class Reference implements Comparable<Reference> {
     public int compareTo(Reference rhs) {
         Reference lhs = this;
 
-        try {
-            if (lhs.book.getLocation() - rhs.book.getLocation() == 1) {
-                if ((lhs.chapter == 1 && lhs.verses.get(0) == 1) &&
-                        (rhs.chapter == rhs.book.numChapters() &&
-                                (rhs.verses.get(0) == rhs.book.numVersesInChapter(rhs.chapter)))) {
+        //a Reference without a Book cannot be placed, so it comes before every Reference that can
+        if (lhs.book == null || rhs.book == null) {
+            return (lhs.book == rhs.book) ? 0 : ((lhs.book == null) ? -4 : 4);
+        }
+
+        //within one Bible whose Books are in order, the distance between ordinals says everything needed
+        if (lhs.bible == rhs.bible) {
+            OrdinalIndex index = lhs.ordinalIndex();
+            if (index != null && index.isCanonicallyOrdered()) {
+                int lhsOrdinal = lhs.firstOrdinal();
+                int rhsOrdinal = rhs.firstOrdinal();
+                if (lhsOrdinal >= 0 && rhsOrdinal >= 0) {
+                    return compareOrdinals(index, lhsOrdinal, rhsOrdinal);
+                }
+            }
+        }
+
+        //a Reference without verses starts at its first verse
+        int lhsVerse = lhs.getFirstVerse();
+        int rhsVerse = rhs.getFirstVerse();
+
+        if (lhs.book.getLocation() - rhs.book.getLocation() == 1) {
+            if ((lhs.chapter == 1 && lhsVerse == 1) &&
+                    (rhs.chapter == rhs.book.numChapters() &&
+                            (rhsVerse == rhs.book.numVersesInChapter(rhs.chapter)))) {
+                return 1;
+            }
+            else {
+                return 4;
+            }
+        }
+        else if (lhs.book.getLocation() - rhs.book.getLocation() == -1) {
+            if ((rhs.chapter == 1 && rhsVerse == 1) &&
+                    (lhs.chapter == lhs.book.numChapters() &&
+                            (lhsVerse == lhs.book.numVersesInChapter(lhs.chapter)))) {
+                return -1;
+            }
+            else {
+                return -4;
+            }
+        }
+        else if (lhs.book.getLocation() > rhs.book.getLocation()) {
+            return 4;
+        }
+        else if (lhs.book.getLocation() < rhs.book.getLocation()) {
+            return -4;
+        }
+        else {
+            //same book
+            if (lhs.chapter - rhs.chapter == 1) {
+                if ((lhsVerse == 1) &&
+                        (rhsVerse == rhs.book.numVersesInChapter(rhs.chapter))) {
                     return 1;
                 }
                 else {
-                    return 4;
+                    return 3;
                 }
             }
-            else if (lhs.book.getLocation() - rhs.book.getLocation() == -1) {
-                if ((rhs.chapter == 1 && rhs.verses.get(0) == 1) &&
-                        (lhs.chapter == lhs.book.numChapters() &&
-                                (lhs.verses.get(0) == lhs.book.numVersesInChapter(lhs.chapter)))) {
+            if (lhs.chapter - rhs.chapter == -1) {
+                if ((rhsVerse == 1) &&
+                        (lhsVerse == lhs.book.numVersesInChapter(lhs.chapter))) {
                     return -1;
                 }
                 else {
-                    return -4;
+                    return -3;
                 }
             }
-            else if (lhs.book.getLocation() > rhs.book.getLocation()) {
-                return 4;
+            else if (lhs.chapter > rhs.chapter) {
+                return 3;
             }
-            else if (lhs.book.getLocation() < rhs.book.getLocation()) {
-                return -4;
+            else if (lhs.chapter < rhs.chapter) {
+                return -3;
             }
             else {
-                //same book
-                if (lhs.chapter - rhs.chapter == 1) {
-                    if ((lhs.verses.get(0) == 1) &&
-                            (rhs.verses.get(0) == rhs.book.numVersesInChapter(rhs.chapter))) {
-                        return 1;
-                    }
-                    else {
-                        return 3;
-                    }
+                //same chapter
+                if (lhsVerse - rhsVerse == 1) {
+                    return 1;
                 }
-                if (lhs.chapter - rhs.chapter == -1) {
-                    if ((rhs.verses.get(0) == 1) &&
-                            (lhs.verses.get(0) == lhs.book.numVersesInChapter(lhs.chapter))) {
-                        return -1;
-                    }
-                    else {
-                        return -3;
-                    }
+                else if (lhsVerse - rhsVerse == -1) {
+                    return -1;
                 }
-                else if (lhs.chapter > rhs.chapter) {
-                    return 3;
+                else if (lhsVerse > rhsVerse) {
+                    return 2;
                 }
-                else if (lhs.chapter < rhs.chapter) {
-                    return -3;
+                else if (lhsVerse < rhsVerse) {
+                    return -2;
                 }
                 else {
-                    //same chapter
-                    if (lhs.verses.get(0) - rhs.verses.get(0) == 1) {
-                        return 1;
-                    }
-                    else if (lhs.verses.get(0) - rhs.verses.get(0) == -1) {
-                        return -1;
-                    }
-                    else if (lhs.verses.get(0) > rhs.verses.get(0)) {
-                        return 2;
-                    }
-                    else if (lhs.verses.get(0) < rhs.verses.get(0)) {
-                        return -2;
-                    }
-                    else {
-                        return 0; //this means lhs.verses.get(0) == rhs.verses.get(0)
-                    }
+                    return 0; //this means lhsVerse == rhsVerse
                 }
             }
         }
-        catch (Exception e) {
-            e.printStackTrace();
+    }
+
+    private static int compareOrdinals(OrdinalIndex index, int lhsOrdinal, int rhsOrdinal) {
+        int difference = lhsOrdinal - rhsOrdinal;
+        if (difference == 0 || difference == 1 || difference == -1) {
+            return difference;
+        }
 
-            return lhs.toString().compareTo(rhs.toString());
+        int sign = (difference > 0) ? 1 : -1;
+        if (index.bookIndexAt(lhsOrdinal) != index.bookIndexAt(rhsOrdinal)) {
+            return 4 * sign;
+        }
+        else if (index.chapterAt(lhsOrdinal) != index.chapterAt(rhsOrdinal)) {
+            return 3 * sign;
+        }
+        else {
+            return 2 * sign;
         }
     }
 
@@ -448,6 +700,9 @@ public final class Reference implements Comparable<Reference> {
      * @return true if the two References contain equivalent Books, chapters, and verse lists. False otherwise
      */
     public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
         if (other == null) {
             return false;
         }
@@ -457,42 +712,79 @@ public final class Reference implements Comparable<Reference> {
 
         Reference ref = (Reference) other;
 
-        if (!this.book.equals(ref.book)) {
+        if (this.hash != 0 && ref.hash != 0 && this.hash != ref.hash) {
             return false;
         }
-        if (this.chapter != ref.chapter) {
+        if (!this.book.equals(ref.book)) {
             return false;
         }
-        if (this.verses.size() != ref.verses.size()) {
+        if (this.chapter != ref.chapter) {
             return false;
         }
 
-        for (Integer i : this.verses) {
-            if (!ref.verses.contains(i)) {
-                return false;
-            }
-        }
-        for (Integer i : ref.verses) {
-            if (!this.verses.contains(i)) {
-                return false;
-            }
-        }
-
-        return true;
+        //both arrays are sorted and without duplicates, so equal sets of verses are equal arrays
+        return Arrays.equals(this.verses, ref.verses);
     }
 
     /**
-     * Generate a hashcode for this reference, based on the Book's hashcode, the chapter, and the verses.
+     * Generate a hashcode for this reference, based on the Book's hashcode, the chapter, and the verses. Since a
+     * Reference cannot be modified, the hashcode is only computed the first time it is needed.
      *
      * @return the hashcode
      */
     public int hashCode() {
-        int result = book.getName().hashCode();
-        result = 31 * result + chapter;
-        result = 31 * result + verses.hashCode();
+        int result = hash;
+        if (result == 0) {
+            //hash the Book by its location rather than its name, the same way it is compared in equals()
+            result = (book != null) ? book.hashCode() : 0;
+            result = 31 * result + chapter;
+            //Arrays.hashCode gives the same value as the hashCode of the equivalent List<Integer>
+            result = 31 * result + Arrays.hashCode(verses);
+            hash = result;
+        }
         return result;
     }
 
+    /**
+     * A read-only List view over the primitive verses of a Reference, boxing each verse as it is read.
+     */
+    private static final class VerseList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] verses;
+
+        private VerseList(int[] verses) {
+            this.verses = verses;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return verses[index];
+        }
+
+        @Override
+        public int size() {
+            return verses.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return (o instanceof Integer) && Arrays.binarySearch(verses, (Integer) o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Integer)) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(verses, (Integer) o);
+            return (index >= 0) ? index : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+    }
+
 //Builder class
 //--------------------------------------------------------------------------------------------------
 
@@ -516,6 +808,11 @@ public final class Reference implements Comparable<Reference> {
         public static int PARSE_SUCCESS = 0x40;
         public static int PARSE_FAILURE = 0x80;
 
+        private static final int MAX_BITSET_VERSE = 1 << 16;
+
+        //a range the Book does not limit is cut off here, since no real chapter comes close to this many verses
+        private static final int MAX_UNSIZED_VERSE = MAX_BITSET_VERSE - 1;
+
         private int flags = 0;
 
         /**
@@ -545,47 +842,72 @@ public final class Reference implements Comparable<Reference> {
             return ((flags & flag) == flag);
         }
 
+        /**
+         * Get all the bit flags currently set on this Builder.
+         *
+         * @return the bit flags
+         */
+        public int getFlags() {
+            return flags;
+        }
+
         private Bible bible;
         private Book book;
         private int chapter;
-        private ArrayList<Integer> verses;
+        private int[] verses;
+        private int verseCount;
+        private long[] verseBits;
+
+        private ReferenceParser parser;
+        private ParseCache parseCache;
 
         /**
          * Create a new Builder with all properties set to their default values.
          */
         public Builder() {
-            this.bible = new SimpleBible();
-            this.book = new SimpleBook();
-            chapter = 1;
-            this.verses = new ArrayList<>();
+            this.verses = new int[8];
+            this.verseBits = new long[4];
+            reset();
+        }
 
-            setFlag(DEFAULT_BIBLE_FLAG);
-            setFlag(DEFAULT_BOOK_FLAG);
-            setFlag(DEFAULT_CHAPTER_FLAG);
-            setFlag(DEFAULT_VERSES_FLAG);
+        /**
+         * Set every property and flag back to the value it has in a new Builder, so that this Builder can be reused to
+         * create another Reference. The verse buffer, parser and ParseCache are kept, so a Builder which is reset and
+         * reused, such as one kept per thread, does not allocate anything more than the References it creates once it
+         * has grown to fit the largest Reference.
+         *
+         * @return this Builder, for chaining
+         */
+        public Builder reset() {
+            flags = 0;
+            setDefaultBible();
+            setDefaultBook();
+            setDefaultChapter();
+            setDefaultVerses();
+            return this;
         }
 
         /**
          * Set the Bible to its default value, an empty SimpleBible.
          *
          * @return this Builder, for chaining
-         * @see SimpleBible
+         * @see SimpleBible#empty()
          */
         public Builder setDefaultBible() {
-            this.bible = new SimpleBible();
+            this.bible = SimpleBible.empty();
 
             setFlag(DEFAULT_BIBLE_FLAG);
             return this;
         }
 
         /**
-         * Set the Book to its default value, and empty SimpleBook.
+         * Set the Book to its default value, an empty SimpleBook.
          *
          * @return this Builder, for chaining
-         * @see SimpleBook
+         * @see SimpleBook#empty()
          */
         public Builder setDefaultBook() {
-            this.book = new SimpleBook();
+            this.book = SimpleBook.empty();
 
             setFlag(DEFAULT_BOOK_FLAG);
             return this;
@@ -609,7 +931,7 @@ public final class Reference implements Comparable<Reference> {
          * @return this Builder, for chaining
          */
         public Builder setDefaultVerses() {
-            this.verses = new ArrayList<>();
+            clearVerses();
 
             setFlag(DEFAULT_VERSES_FLAG);
             return this;
@@ -643,12 +965,60 @@ public final class Reference implements Comparable<Reference> {
         }
 
         /**
-         * Get the list of verses set with this Reference.
+         * Get the verses set with this Builder, in the order they were added.
          *
-         * @return the reference's Bible
+         * @return a copy of the verses set with this Builder
          */
         public List<Integer> getVerses() {
-            return verses;
+            List<Integer> list = new ArrayList<>(verseCount);
+            for (int i = 0; i < verseCount; i++) {
+                list.add(verses[i]);
+            }
+            return list;
+        }
+
+        /**
+         * Get the number of verses set with this Builder.
+         *
+         * @return the number of verses
+         */
+        public int getVerseCount() {
+            return verseCount;
+        }
+
+        /**
+         * Set a cache for {@link Builder#parseReference(String)} to use. When a String has already been parsed against
+         * the same Bible, the cached result is set on this Builder instead of parsing the String again. A single cache
+         * is meant to be shared by many Builders. Set to null to stop using a cache.
+         *
+         * @param parseCache the cache to use, or null
+         * @return this Builder, for chaining
+         */
+        public Builder setParseCache(ParseCache parseCache) {
+            this.parseCache = parseCache;
+            return this;
+        }
+
+        /**
+         * Get the cache used when parsing references.
+         *
+         * @return the cache, or null if parsed references are not being cached
+         */
+        public ParseCache getParseCache() {
+            return parseCache;
+        }
+
+        /**
+         * Get the parser this Builder uses to parse Strings, creating it if needed. It can be configured to change how
+         * all later parses by this Builder behave.
+         *
+         * @return this Builder's parser
+         */
+        public ReferenceParser getParser() {
+            if (parser == null) {
+                parser = new ReferenceParser(this);
+            }
+            return parser;
         }
 
         /**
@@ -667,6 +1037,144 @@ public final class Reference implements Comparable<Reference> {
             boolean defaultBible = checkFlag(DEFAULT_BIBLE_FLAG);
             boolean autoAddVerses = checkFlag(PREVENT_AUTO_ADD_VERSES_FLAG);
 
+            clearForParse();
+
+            ParseCache.Entry cached = (parseCache != null) ? parseCache.get(bible, reference) : null;
+
+            if (cached != null) {
+                this.book = cached.getBook();
+                this.chapter = cached.getChapter();
+                clearVerses();
+                for (int verse : cached.getVerses()) {
+                    appendVerse(verse);
+                }
+                flags = cached.getFlags();
+            }
+            else {
+                getParser().parse(reference);
+
+                if (parseCache != null) {
+                    parseCache.put(bible, reference, new ParseCache.Entry(book, chapter, verses, verseCount, flags));
+                }
+            }
+
+            updateParseFlags(autoAddVerses);
+            restoreFlags(defaultBible, autoAddVerses);
+
+            return this;
+        }
+
+        /**
+         * Parse a String reference into this Builder leniently, and describe the outcome. See
+         * {@link Builder#tryParseReference(String, boolean)}.
+         *
+         * @param reference A string input to be fully parsed into this Builder
+         * @return the Reference that was parsed, and the first problem found in the input, if any
+         */
+        public ParseResult tryParseReference(String reference) {
+            return tryParseReference(reference, false);
+        }
+
+        /**
+         * Parse a String reference into this Builder, and describe the outcome without throwing or logging anything on
+         * bad input. The result holds the parsed Reference and this Builder's flags just like
+         * {@link Builder#parseReference(String)}, along with the kind and character position of the first problem the
+         * parser found in the input.
+         * <p>
+         * Input which is empty or does not start with a book always fails. In strict mode, parsing stops at the first
+         * invalid token, the input must not have anything left over after the Reference, and any problem at all causes
+         * the parse to fail. These parses skip the ParseCache, since it does not hold on to problems found in the input.
+         *
+         * @param reference A string input to be fully parsed into this Builder
+         * @param strict    true to fail at the first problem in the input
+         * @return the Reference that was parsed, and the first problem found in the input, if any
+         */
+        public ParseResult tryParseReference(String reference, boolean strict) {
+            boolean defaultBible = checkFlag(DEFAULT_BIBLE_FLAG);
+            boolean autoAddVerses = checkFlag(PREVENT_AUTO_ADD_VERSES_FLAG);
+
+            clearForParse();
+
+            getParser().setStrict(strict);
+            parser.parse(reference);
+            parser.setStrict(false);
+
+            updateParseFlags(autoAddVerses);
+
+            ParseResult.ErrorKind errorKind = parser.getErrorKind();
+            int errorPosition = parser.getErrorPosition();
+
+            //without a book in the input, the Reference could only have come from the Bible's first Book
+            if ((strict && errorKind != ParseResult.ErrorKind.NONE)
+                    || errorKind == ParseResult.ErrorKind.EMPTY_INPUT
+                    || errorKind == ParseResult.ErrorKind.MISSING_BOOK) {
+                unsetFlag(PARSE_SUCCESS);
+                setFlag(PARSE_FAILURE);
+            }
+            else if (errorKind == ParseResult.ErrorKind.NONE && checkFlag(PARSE_FAILURE)) {
+                //the parser found nothing wrong with the tokens, but the Reference is still incomplete
+                if (checkFlag(DEFAULT_BOOK_FLAG)) {
+                    errorKind = ParseResult.ErrorKind.MISSING_BOOK;
+                }
+                else if (checkFlag(DEFAULT_CHAPTER_FLAG)) {
+                    errorKind = ParseResult.ErrorKind.MISSING_CHAPTER;
+                }
+                else {
+                    errorKind = ParseResult.ErrorKind.MISSING_VERSES;
+                }
+                errorPosition = (reference != null) ? reference.length() : 0;
+            }
+
+            restoreFlags(defaultBible, autoAddVerses);
+
+            Reference created = create();
+            return new ParseResult(reference, created, flags, errorKind, errorPosition);
+        }
+
+        /**
+         * Parse a String containing several references, such as "John 3:16; 4:2; Rom 8:28-30", into a list of
+         * References, using the current Bible to match Book names against. The whole String is parsed in one pass, and
+         * a passage which does not name its own Book uses the Book of the passage before it. Only passages that are
+         * parsed successfully are included in the list. See {@link ReferenceParser#parseList(String, Runnable)} for
+         * the expected format of a list of References.
+         * <p>
+         * After parsing, this Builder holds the Book of the last passage in the list.
+         *
+         * @param reference A string input to be fully parsed into References
+         * @return the References that were successfully parsed, in the order they appear in the input
+         * @see ReferenceParser
+         */
+        public List<Reference> parseReferences(String reference) {
+            final boolean defaultBible = checkFlag(DEFAULT_BIBLE_FLAG);
+            final boolean autoAddVerses = checkFlag(PREVENT_AUTO_ADD_VERSES_FLAG);
+            final List<Reference> references = new ArrayList<>();
+
+            clearForParse();
+
+            getParser().parseList(reference, () -> {
+                updateParseFlags(autoAddVerses);
+                restoreFlags(defaultBible, autoAddVerses);
+
+                if (checkFlag(PARSE_SUCCESS)) {
+                    references.add(create());
+                }
+
+                //keep the book so it can be carried forward to the next passage, but clear everything else
+                boolean defaultBook = checkFlag(DEFAULT_BOOK_FLAG);
+                setDefaultChapter();
+                setDefaultVerses();
+
+                flags = 0;
+                setFlag(PARSED);
+                if (defaultBook) { setFlag(DEFAULT_BOOK_FLAG); }
+            });
+
+            restoreFlags(defaultBible, autoAddVerses);
+
+            return references;
+        }
+
+        private void clearForParse() {
             //clear the builder so no interfaces can accidentally stay from a previous parse
             //keep the set Bible since that is not able to be parsed from a string (yet)
             setDefaultBook();
@@ -676,10 +1184,9 @@ public final class Reference implements Comparable<Reference> {
             //unset all flags and but flag this builder as being parsed
             flags = 0;
             setFlag(PARSED);
+        }
 
-            ReferenceParser parser = new ReferenceParser(this);
-            parser.parse(reference);
-
+        private void updateParseFlags(boolean autoAddVerses) {
             //if adding verses is allowed, all we need for a successful parse is a non-default book
             //and chapter. If adding verses is prevented, we need non-default verses too
             if (autoAddVerses) {
@@ -702,15 +1209,15 @@ public final class Reference implements Comparable<Reference> {
                     setFlag(PARSE_FAILURE);
                 }
             }
+        }
 
+        private void restoreFlags(boolean defaultBible, boolean autoAddVerses) {
             //restore the state of flags that couldn't be modified by the parser
             if (defaultBible) { setFlag(DEFAULT_BIBLE_FLAG); }
             else { unsetFlag(DEFAULT_BIBLE_FLAG); }
 
             if (autoAddVerses) { setFlag(PREVENT_AUTO_ADD_VERSES_FLAG); }
             else { unsetFlag(PREVENT_AUTO_ADD_VERSES_FLAG); }
-
-            return this;
         }
 
         /**
@@ -814,7 +1321,7 @@ public final class Reference implements Comparable<Reference> {
             unsetFlag(DEFAULT_VERSES_FLAG);
             boolean usedDefaultVerse = false;
 
-            this.verses = new ArrayList<>();
+            clearVerses();
             for (int verse : verses) {
                 addVerse(verse);
                 usedDefaultVerse = usedDefaultVerse || checkFlag(DEFAULT_VERSES_FLAG);
@@ -846,7 +1353,7 @@ public final class Reference implements Comparable<Reference> {
             unsetFlag(DEFAULT_VERSES_FLAG);
             boolean usedDefaultVerse = false;
 
-            this.verses = new ArrayList<>();
+            clearVerses();
             for (int verse : verses) {
                 addVerse(verse);
                 usedDefaultVerse = usedDefaultVerse || checkFlag(DEFAULT_VERSES_FLAG);
@@ -870,8 +1377,8 @@ public final class Reference implements Comparable<Reference> {
          */
         public Builder addVerse(int verse) {
             if (getBook().validateVerseInChapter(chapter, verse)) {
-                if (!verses.contains(verse)) {
-                    this.verses.add(verse);
+                if (!hasVerse(verse)) {
+                    appendVerse(verse);
                 }
                 unsetFlag(DEFAULT_VERSES_FLAG);
             }
@@ -888,8 +1395,63 @@ public final class Reference implements Comparable<Reference> {
                     setFlag(DEFAULT_VERSES_FLAG);
                 }
 
-                if (!verses.contains(verse)) {
-                    this.verses.add(verse);
+                if (!hasVerse(verse)) {
+                    appendVerse(verse);
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds every verse from one verse to another to this Builder's list of verses. This has the same result as
+         * calling {@link Builder#addVerse(int)} for each verse in the range, but the range is only validated against
+         * the Book once, rather than for every verse. Nothing is added if the range is backwards.
+         * <p>
+         * When the Book does not limit the range, such as when there is no Bible, the Book has no chapters, or it
+         * accepts any verse like a SimpleBook, a range ending past verse 65535 stops at verse 65535. The
+         * DEFAULT_VERSES_FLAG is then set, just as it is when a range is cut off at the last verse of a known chapter.
+         *
+         * @param from the first verse to add, inclusive
+         * @param to   the last verse to add, inclusive
+         * @return this Builder, for chaining
+         */
+        public Builder addRange(int from, int to) {
+            if (from > to) {
+                return this;
+            }
+
+            //a Book validates verses against the size of the chapter, so if both ends of the range are valid then so
+            //is every verse between them. Some Books, like SimpleBook, accept any verse, so the range is still cut off
+            if (getBook().validateVerseInChapter(chapter, from) && getBook().validateVerseInChapter(chapter, to)) {
+                int end = Math.min(to, MAX_UNSIZED_VERSE);
+                appendRange(Math.min(from, end), end);
+                if (end < to) {
+                    setFlag(DEFAULT_VERSES_FLAG);
+                }
+                else {
+                    unsetFlag(DEFAULT_VERSES_FLAG);
+                }
+            }
+            else if (getBook().numVersesInChapter(chapter) == -1) {
+                //verses cannot be validated against a chapter of unknown size, so the whole range is added at once,
+                //with verses below 1 added as verse 1 just like addVerse does
+                int end = Math.max(1, Math.min(to, MAX_UNSIZED_VERSE));
+                int start = Math.min(Math.max(from, 1), end);
+                if (from < 1 || to > end) {
+                    setFlag(DEFAULT_VERSES_FLAG);
+                }
+                appendRange(start, end);
+            }
+            else {
+                //every verse below 1 is added as verse 1, and every verse past the end of the chapter is added as the
+                //last verse, so only one of each needs to be added to get the same result as adding them all
+                int last = getBook().numVersesInChapter(chapter);
+                int start = Math.max(from, Math.min(0, to));
+                int end = Math.max(start, Math.min(to, Math.max(last, 0) + 1));
+
+                for (int verse = start; verse <= end; verse++) {
+                    addVerse(verse);
                 }
             }
 
@@ -902,15 +1464,11 @@ public final class Reference implements Comparable<Reference> {
          * @return this Builder, for chaining
          */
         public Builder addAllVersesInChapter() {
-            if (book.getChapters() != null
-                    && book.numChapters() > 0
+            if (book.numChapters() > 0
                     && chapter >= 0
                     && chapter <= book.numChapters()) {
-                this.verses = new ArrayList<>();
-
-                for (int i = 1; i <= book.numVersesInChapter(chapter); i++) {
-                    this.verses.add(i);
-                }
+                clearVerses();
+                appendRange(1, book.numVersesInChapter(chapter));
             }
 
             unsetFlag(DEFAULT_VERSES_FLAG);
@@ -928,7 +1486,7 @@ public final class Reference implements Comparable<Reference> {
          * @return a Reference containing the interfaces of this Builder.
          */
         public Reference create() {
-            if (verses.size() == 0) {
+            if (verseCount == 0) {
                 if (!checkFlag(PREVENT_AUTO_ADD_VERSES_FLAG)) {
                     if (chapter > 0) {
                         addAllVersesInChapter();
@@ -937,15 +1495,63 @@ public final class Reference implements Comparable<Reference> {
                         setFlag(DEFAULT_CHAPTER_FLAG);
 
                         chapter = 1;
-                        verses = new ArrayList<>();
-                        verses.add(1);
+                        appendVerse(1);
                     }
 
                     setFlag(DEFAULT_VERSES_FLAG);
                 }
             }
 
-            return new Reference(bible, book, chapter, verses);
+            return new Reference(bible, book, chapter, verses, verseCount);
+        }
+
+        //verses are kept in the order they were added, with a bitset of the verses that have been added so that
+        //duplicates can be found in constant time. Verses too large for the bitset are rare, and are searched for
+        private boolean hasVerse(int verse) {
+            if (verse >= 0 && verse < MAX_BITSET_VERSE) {
+                int word = verse >>> 6;
+                return word < verseBits.length && (verseBits[word] & (1L << verse)) != 0;
+            }
+
+            for (int i = 0; i < verseCount; i++) {
+                if (verses[i] == verse) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void appendVerse(int verse) {
+            if (verseCount == verses.length) {
+                verses = Arrays.copyOf(verses, verseCount * 2);
+            }
+            verses[verseCount++] = verse;
+
+            if (verse >= 0 && verse < MAX_BITSET_VERSE) {
+                int word = verse >>> 6;
+                if (word >= verseBits.length) {
+                    verseBits = Arrays.copyOf(verseBits, Math.max(word + 1, verseBits.length * 2));
+                }
+                verseBits[word] |= 1L << verse;
+            }
+        }
+
+        private void appendRange(int from, int to) {
+            for (int verse = from; verse <= to; verse++) {
+                if (!hasVerse(verse)) {
+                    appendVerse(verse);
+                }
+            }
+        }
+
+        private void clearVerses() {
+            for (int i = 0; i < verseCount; i++) {
+                int verse = verses[i];
+                if (verse >= 0 && verse < MAX_BITSET_VERSE) {
+                    verseBits[verse >>> 6] = 0L;
+                }
+            }
+            verseCount = 0;
         }
     }
 
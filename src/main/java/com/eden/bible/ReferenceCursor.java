@@ -0,0 +1,185 @@
+package com.eden.bible;
+
+/**
+ * A position at a single verse in a Bible which can be moved forward and backward by verse, chapter or Book, such as
+ * for reading through the Bible one verse at a time. A cursor is just a verse {@link OrdinalIndex ordinal}, so moving
+ * it is simple arithmetic and allocates nothing. A Reference is only created when asked for with
+ * {@link #toReference()}.
+ * <p>
+ * Unlike {@link Reference#next(int)} and {@link Reference#previous(int)}, a cursor does not wrap around from the end
+ * of the Bible to its beginning. Instead, each move returns false and leaves the cursor where it was, so a whole Bible
+ * can be read with a loop such as {@code do { ... } while (cursor.next());}.
+ * <p>
+ * The ordinals are those of the Bible's {@link Bible#getOrdinalIndex() index} when the cursor was created. A
+ * ReferenceCursor is not thread-safe.
+ */
+public final class ReferenceCursor {
+    private final Bible bible;
+    private final OrdinalIndex index;
+
+    private int ordinal;
+
+    /**
+     * Create a cursor at the first verse of a Bible.
+     *
+     * @param bible the Bible to move through
+     * @throws IllegalArgumentException if the Bible has no verses
+     */
+    public ReferenceCursor(Bible bible) {
+        OrdinalIndex index = (bible != null) ? bible.getOrdinalIndex() : null;
+        if (index == null || index.size() == 0) {
+            throw new IllegalArgumentException("A ReferenceCursor needs a Bible with verses");
+        }
+
+        this.bible = bible;
+        this.index = index;
+        this.ordinal = 0;
+    }
+
+    /**
+     * Create a cursor at the first verse of a Reference.
+     *
+     * @param reference the Reference to start at
+     * @throws IllegalArgumentException if the Reference cannot be found in its Bible
+     */
+    public ReferenceCursor(Reference reference) {
+        this(reference.getBible());
+
+        int start = reference.firstOrdinal();
+        if (start < 0) {
+            throw new IllegalArgumentException("The Reference " + reference + " cannot be found in its Bible");
+        }
+        this.ordinal = start;
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    /**
+     * Get the ordinal of the verse the cursor is at.
+     *
+     * @return the current ordinal
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Move the cursor to the verse with the given ordinal.
+     *
+     * @param ordinal the ordinal of the verse
+     * @throws IllegalArgumentException if the ordinal is not a verse in the Bible
+     */
+    public void seek(int ordinal) {
+        if (ordinal < 0 || ordinal >= index.size()) {
+            throw new IllegalArgumentException("Ordinal " + ordinal + " is not a verse in " + bible.getName());
+        }
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Get the position of the current Book in the Bible's list of Books.
+     *
+     * @return the index of the current Book
+     */
+    public int getBookIndex() {
+        return index.bookIndexAt(ordinal);
+    }
+
+    public Book getBook() {
+        return (Book) bible.getBooks().get(index.bookIndexAt(ordinal));
+    }
+
+    public int getChapter() {
+        return index.chapterAt(ordinal);
+    }
+
+    public int getVerse() {
+        return index.verseAt(ordinal);
+    }
+
+    /**
+     * Move to the next verse, which may be in the next chapter or Book.
+     *
+     * @return true if the cursor moved, false if it is already at the last verse of the Bible
+     */
+    public boolean next() {
+        return moveTo(ordinal + 1);
+    }
+
+    /**
+     * Move to the previous verse, which may be in the previous chapter or Book.
+     *
+     * @return true if the cursor moved, false if it is already at the first verse of the Bible
+     */
+    public boolean previous() {
+        return moveTo(ordinal - 1);
+    }
+
+    /**
+     * Move to the first verse of the next chapter, which may be in the next Book.
+     *
+     * @return true if the cursor moved, false if it is already in the last chapter of the Bible
+     */
+    public boolean nextChapter() {
+        return moveTo(index.lastOrdinalOfChapter(getBookIndex(), getChapter()) + 1);
+    }
+
+    /**
+     * Move to the first verse of the previous chapter, which may be in the previous Book.
+     *
+     * @return true if the cursor moved, false if it is already in the first chapter of the Bible
+     */
+    public boolean previousChapter() {
+        int previous = index.firstOrdinalOfChapter(getBookIndex(), getChapter()) - 1;
+        return previous >= 0 && moveTo(index.firstOrdinalOfChapter(index.bookIndexAt(previous), index.chapterAt(previous)));
+    }
+
+    /**
+     * Move to the first verse of the next Book with any verses.
+     *
+     * @return true if the cursor moved, false if it is already in the last Book of the Bible
+     */
+    public boolean nextBook() {
+        return moveTo(index.bookEnd(getBookIndex()));
+    }
+
+    /**
+     * Move to the first verse of the previous Book with any verses.
+     *
+     * @return true if the cursor moved, false if it is already in the first Book of the Bible
+     */
+    public boolean previousBook() {
+        int previous = index.bookStart(getBookIndex()) - 1;
+        return previous >= 0 && moveTo(index.bookStart(index.bookIndexAt(previous)));
+    }
+
+    /**
+     * Create a Reference to the verse the cursor is at.
+     *
+     * @return a Reference to the current verse
+     */
+    public Reference toReference() {
+        return new Reference.Builder()
+                .setBible(bible)
+                .setBook(getBook())
+                .setChapter(getChapter())
+                .setVerses(getVerse())
+                .create();
+    }
+
+    @Override
+    public String toString() {
+        Book book = getBook();
+        return ((book != null) ? book.getName() : "") + " " + getChapter() + ":" + getVerse();
+    }
+
+    private boolean moveTo(int ordinal) {
+        if (ordinal < 0 || ordinal >= index.size()) {
+            return false;
+        }
+        this.ordinal = ordinal;
+        return true;
+    }
+}
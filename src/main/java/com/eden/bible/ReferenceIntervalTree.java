@@ -0,0 +1,439 @@
+package com.eden.bible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An index of values attached to References, such as notes or highlights, which can quickly find every value whose
+ * Reference touches a given passage. Each Reference is indexed by the span of verse {@link OrdinalIndex ordinals} from
+ * its first to its final verse, so a Reference to "Romans 8:1, 5" covers Romans 8:1-5.
+ * <p>
+ * The spans are kept in a treap ordered by their first ordinal, where every node also knows the smallest and largest
+ * last ordinal beneath it. A query can therefore skip any subtree which cannot hold a matching span, and finding the k
+ * matching spans among n takes O(log n + k) time in the common case. Spans can be added and removed at any time.
+ * <p>
+ * The same Reference may be added any number of times with different values. Ordinals are those of the Bible's
+ * {@link Bible#getOrdinalIndex() index} when the tree was created. A ReferenceIntervalTree is not thread-safe.
+ *
+ * @param <V> the type of value attached to each Reference
+ */
+public final class ReferenceIntervalTree<V> {
+    private static final int QUERY_OVERLAPPING = 0;
+    private static final int QUERY_WITHIN = 1;
+    private static final int QUERY_CONTAINING = 2;
+
+    private final Bible bible;
+    private final OrdinalIndex index;
+    private final Random priorities;
+
+    private Node<V> root;
+    private long nextSequence;
+
+    /**
+     * Create an empty tree for References in the given Bible.
+     *
+     * @param bible the Bible the References are in
+     * @throws IllegalArgumentException if the Bible has no Books
+     */
+    public ReferenceIntervalTree(Bible bible) {
+        OrdinalIndex index = (bible != null) ? bible.getOrdinalIndex() : null;
+        if (index == null) {
+            throw new IllegalArgumentException("A ReferenceIntervalTree needs a Bible with Books");
+        }
+
+        this.bible = bible;
+        this.index = index;
+        this.priorities = new Random();
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    /**
+     * Get the number of entries in this tree.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Attach a value to a Reference.
+     *
+     * @param reference the Reference to index
+     * @param value     the value to attach to it
+     * @throws IllegalArgumentException if the Reference cannot be found in the Bible
+     */
+    public void add(Reference reference, V value) {
+        int start = firstOrdinal(reference);
+        int end = lastOrdinal(reference);
+        if (start < 0 || end < 0) {
+            throw new IllegalArgumentException("The Reference " + reference + " cannot be found in " + bible.getName());
+        }
+
+        root = insert(root, new Node<>(new Entry<>(reference, value, start, end), nextSequence++, priorities.nextInt()));
+    }
+
+    /**
+     * Remove one entry which attaches the given value to the given Reference.
+     *
+     * @param reference the Reference the value was attached to
+     * @param value     the value to remove
+     * @return true if an entry was removed
+     */
+    public boolean remove(Reference reference, V value) {
+        int start = firstOrdinal(reference);
+        int end = lastOrdinal(reference);
+        if (start < 0 || end < 0) {
+            return false;
+        }
+
+        boolean[] removed = new boolean[1];
+        root = remove(root, start, end, reference, value, removed);
+        return removed[0];
+    }
+
+    /**
+     * Remove every entry from this tree.
+     */
+    public void clear() {
+        root = null;
+    }
+
+//Queries
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Find every entry whose Reference shares at least one verse in its span with the given Reference.
+     *
+     * @param reference the passage to look for
+     * @return the matching entries, ordered by the first verse of their Reference
+     */
+    public List<Entry<V>> overlapping(Reference reference) {
+        return overlapping(firstOrdinal(reference), lastOrdinal(reference));
+    }
+
+    /**
+     * Find every entry whose span shares at least one verse with the span between two ordinals.
+     *
+     * @param from the first ordinal of the span, inclusive
+     * @param to   the last ordinal of the span, inclusive
+     * @return the matching entries, ordered by their first ordinal
+     */
+    public List<Entry<V>> overlapping(int from, int to) {
+        List<Entry<V>> results = new ArrayList<>();
+        if (from >= 0 && to >= from) {
+            collect(root, from, to, QUERY_OVERLAPPING, results);
+        }
+        return results;
+    }
+
+    /**
+     * Find every entry whose Reference lies entirely within the span of the given Reference.
+     *
+     * @param reference the passage to look within
+     * @return the matching entries, ordered by the first verse of their Reference
+     */
+    public List<Entry<V>> within(Reference reference) {
+        return within(firstOrdinal(reference), lastOrdinal(reference));
+    }
+
+    /**
+     * Find every entry whose span lies entirely within the span between two ordinals.
+     *
+     * @param from the first ordinal of the span, inclusive
+     * @param to   the last ordinal of the span, inclusive
+     * @return the matching entries, ordered by their first ordinal
+     */
+    public List<Entry<V>> within(int from, int to) {
+        List<Entry<V>> results = new ArrayList<>();
+        if (from >= 0 && to >= from) {
+            collect(root, from, to, QUERY_WITHIN, results);
+        }
+        return results;
+    }
+
+    /**
+     * Find every entry whose Reference spans the whole of the given Reference.
+     *
+     * @param reference the passage which must be covered
+     * @return the matching entries, ordered by the first verse of their Reference
+     */
+    public List<Entry<V>> containing(Reference reference) {
+        return containing(firstOrdinal(reference), lastOrdinal(reference));
+    }
+
+    /**
+     * Find every entry whose span covers the whole span between two ordinals.
+     *
+     * @param from the first ordinal of the span, inclusive
+     * @param to   the last ordinal of the span, inclusive
+     * @return the matching entries, ordered by their first ordinal
+     */
+    public List<Entry<V>> containing(int from, int to) {
+        List<Entry<V>> results = new ArrayList<>();
+        if (from >= 0 && to >= from) {
+            collect(root, from, to, QUERY_CONTAINING, results);
+        }
+        return results;
+    }
+
+    /**
+     * Find every entry whose span includes a single verse.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return the matching entries, ordered by their first ordinal
+     */
+    public List<Entry<V>> stabbing(int ordinal) {
+        return containing(ordinal, ordinal);
+    }
+
+    private static <V> void collect(Node<V> node, int from, int to, int query, List<Entry<V>> results) {
+        if (node == null) {
+            return;
+        }
+
+        //every span beneath this node ends too early to match
+        if (node.maxEnd < from || (query == QUERY_CONTAINING && node.maxEnd < to)) {
+            return;
+        }
+        //every span beneath this node ends too late to match
+        if (query == QUERY_WITHIN && node.minEnd > to) {
+            return;
+        }
+
+        //spans are ordered by start, so the left subtree only needs searching if it can hold a matching start
+        if (query != QUERY_WITHIN || node.entry.start >= from) {
+            collect(node.left, from, to, query, results);
+        }
+
+        Entry<V> entry = node.entry;
+        boolean matches;
+        if (query == QUERY_OVERLAPPING) {
+            matches = entry.start <= to && entry.end >= from;
+        }
+        else if (query == QUERY_WITHIN) {
+            matches = entry.start >= from && entry.end <= to;
+        }
+        else {
+            matches = entry.start <= from && entry.end >= to;
+        }
+        if (matches) {
+            results.add(entry);
+        }
+
+        //everything to the right starts no earlier than this node, so stop once that is past the end of the query
+        int lastStart = (query == QUERY_CONTAINING) ? from : to;
+        if (entry.start <= lastStart) {
+            collect(node.right, from, to, query, results);
+        }
+    }
+
+//Treap
+//--------------------------------------------------------------------------------------------------
+
+    private Node<V> insert(Node<V> node, Node<V> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+
+        if (compare(inserted, node) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        }
+        else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+
+        node.update();
+        return node;
+    }
+
+    private Node<V> remove(Node<V> node, int start, int end, Reference reference, V value, boolean[] removed) {
+        if (node == null) {
+            return null;
+        }
+
+        int cmp = (start != node.entry.start)
+                ? Integer.compare(start, node.entry.start)
+                : Integer.compare(end, node.entry.end);
+
+        if (cmp == 0 && matches(node.entry, reference, value)) {
+            removed[0] = true;
+            return merge(node.left, node.right);
+        }
+
+        //entries with the same span may be on either side of this one
+        if (cmp <= 0) {
+            node.left = remove(node.left, start, end, reference, value, removed);
+        }
+        if (cmp >= 0 && !removed[0]) {
+            node.right = remove(node.right, start, end, reference, value, removed);
+        }
+
+        node.update();
+        return node;
+    }
+
+    private static <V> Node<V> merge(Node<V> left, Node<V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private static <V> Node<V> rotateRight(Node<V> node) {
+        Node<V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static <V> Node<V> rotateLeft(Node<V> node) {
+        Node<V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static int compare(Node<?> a, Node<?> b) {
+        if (a.entry.start != b.entry.start) {
+            return Integer.compare(a.entry.start, b.entry.start);
+        }
+        if (a.entry.end != b.entry.end) {
+            return Integer.compare(a.entry.end, b.entry.end);
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    private static boolean matches(Entry<?> entry, Reference reference, Object value) {
+        return entry.reference.equals(reference)
+                && (entry.value == null ? value == null : entry.value.equals(value));
+    }
+
+    private static int size(Node<?> node) {
+        return (node != null) ? node.size : 0;
+    }
+
+    private int firstOrdinal(Reference reference) {
+        return index.ordinal(index.indexOf(reference.getBook()), reference.getChapter(), reference.getFirstVerse());
+    }
+
+    private int lastOrdinal(Reference reference) {
+        return index.ordinal(index.indexOf(reference.getBook()), reference.getChapter(), reference.getFinalVerse());
+    }
+
+    /**
+     * A value attached to a Reference in a {@link ReferenceIntervalTree}.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class Entry<V> {
+        private final Reference reference;
+        private final V value;
+        private final int start;
+        private final int end;
+
+        private Entry(Reference reference, V value, int start, int end) {
+            this.reference = reference;
+            this.value = value;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Reference getReference() {
+            return reference;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Get the ordinal of the first verse of the Reference.
+         *
+         * @return the first ordinal of the span, inclusive
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Get the ordinal of the final verse of the Reference.
+         *
+         * @return the last ordinal of the span, inclusive
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return reference + "=" + value;
+        }
+    }
+
+    private static final class Node<V> {
+        private final Entry<V> entry;
+        private final long sequence;
+        private final int priority;
+
+        private Node<V> left;
+        private Node<V> right;
+        private int maxEnd;
+        private int minEnd;
+        private int size;
+
+        private Node(Entry<V> entry, long sequence, int priority) {
+            this.entry = entry;
+            this.sequence = sequence;
+            this.priority = priority;
+            update();
+        }
+
+        private void update() {
+            maxEnd = entry.end;
+            minEnd = entry.end;
+            size = 1;
+            if (left != null) {
+                maxEnd = Math.max(maxEnd, left.maxEnd);
+                minEnd = Math.min(minEnd, left.minEnd);
+                size += left.size;
+            }
+            if (right != null) {
+                maxEnd = Math.max(maxEnd, right.maxEnd);
+                minEnd = Math.min(minEnd, right.minEnd);
+                size += right.size;
+            }
+        }
+    }
+}
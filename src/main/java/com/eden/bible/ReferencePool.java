@@ -0,0 +1,164 @@
+package com.eden.bible;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of canonical References, so that equal References created many times over can share a single instance. A
+ * Reference is only held weakly by the pool, so once nothing else refers to it, it is forgotten and its memory can be
+ * reclaimed.
+ * <p>
+ * References are pooled by their Bible and Book instances, their chapter and their verses. Two References from
+ * different Bibles, or with different instances of the same Book, are never considered the same here, even though they
+ * may be equal to each other. A Reference whose Bible has no id, or whose Book is not one of its Bible's Books, such as
+ * one from a Builder without a Bible, is never pooled, since its Book may only be a placeholder.
+ * Interning is entirely opt-in, either through {@link Reference#intern()}, which uses the {@link #getDefault() default
+ * pool}, or through a pool of your own. A pool may be used from any number of threads at once.
+ */
+public final class ReferencePool {
+    private static final ReferencePool defaultPool = new ReferencePool();
+
+    private final ConcurrentHashMap<Key, Entry> references;
+    private final ReferenceQueue<Reference> collected;
+
+    public ReferencePool() {
+        this.references = new ConcurrentHashMap<>();
+        this.collected = new ReferenceQueue<>();
+    }
+
+    /**
+     * Get the pool used by {@link Reference#intern()}.
+     *
+     * @return the default pool
+     */
+    public static ReferencePool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Get the canonical instance of a Reference. If a Reference from the same Bible, with the same Book, chapter and
+     * verses is already in this pool, that one is returned. Otherwise, the given Reference is added to the pool and
+     * returned. References which cannot be pooled are returned as they are.
+     *
+     * @param reference the Reference to intern
+     * @return the pooled Reference which is equal to the given one
+     */
+    public Reference intern(Reference reference) {
+        if (!isPoolable(reference)) {
+            return reference;
+        }
+
+        expungeCollected();
+
+        Key key = new Key(reference);
+        while (true) {
+            Entry entry = references.get(key);
+            if (entry != null) {
+                Reference pooled = entry.get();
+                if (pooled != null) {
+                    return pooled;
+                }
+
+                //collected, but not yet expunged
+                references.remove(key, entry);
+            }
+
+            if (references.putIfAbsent(key, new Entry(reference, key, collected)) == null) {
+                return reference;
+            }
+        }
+    }
+
+    /**
+     * Get the number of References currently in this pool. References which have been collected may still be counted
+     * until the pool is next used.
+     *
+     * @return the number of pooled References
+     */
+    public int size() {
+        expungeCollected();
+        return references.size();
+    }
+
+    /**
+     * Remove every Reference from this pool.
+     */
+    public void clear() {
+        references.clear();
+        expungeCollected();
+    }
+
+    private static boolean isPoolable(Reference reference) {
+        if (reference == null || reference.getBook() == null) {
+            return false;
+        }
+
+        Bible bible = reference.getBible();
+        return bible != null && bible.getId() != null && bible.indexOfBook(reference.getBook()) >= 0;
+    }
+
+    private void expungeCollected() {
+        java.lang.ref.Reference<? extends Reference> collectedEntry;
+        while ((collectedEntry = collected.poll()) != null) {
+            Entry entry = (Entry) collectedEntry;
+            references.remove(entry.key, entry);
+        }
+    }
+
+    private static final class Entry extends WeakReference<Reference> {
+        private final Key key;
+
+        private Entry(Reference reference, Key key, ReferenceQueue<Reference> queue) {
+            super(reference, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+        //the pooled Reference holds its Bible and Book anyway, so the key may as well
+        private final Bible bible;
+        private final Book book;
+        private final int chapter;
+        private final int[] verses;
+        private final int hash;
+
+        private Key(Reference reference) {
+            this.bible = reference.getBible();
+            this.book = reference.getBook();
+            this.chapter = reference.getChapter();
+
+            //the verses of a Reference are never modified, so the key can share them
+            this.verses = reference.verseArray();
+
+            int result = System.identityHashCode(bible);
+            result = 31 * result + System.identityHashCode(book);
+            result = 31 * result + chapter;
+            result = 31 * result + Arrays.hashCode(verses);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return this.hash == other.hash
+                    && this.bible == other.bible
+                    && this.book == other.book
+                    && this.chapter == other.chapter
+                    && Arrays.equals(this.verses, other.verses);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -24,7 +24,7 @@ public class Verse extends AbstractVerse {
      * @return the verse number
      */
     public int getVerseNumber() {
-        return reference.getVerses().get(0);
+        return reference.verseAt(0);
     }
 
     /**
@@ -48,7 +48,7 @@ public class Verse extends AbstractVerse {
         String text = "";
 
         text += verseFormatter.onPreFormat(this);
-        text += verseFormatter.onFormatVerseStart(reference.getVerses().get(0));
+        text += verseFormatter.onFormatVerseStart(reference.verseAt(0));
         text += verseFormatter.onFormatText(text);
         text += verseFormatter.onPostFormat();
 
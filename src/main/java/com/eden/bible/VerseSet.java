@@ -0,0 +1,857 @@
+package com.eden.bible;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of individual verses in a Bible, such as every verse in a user's saved lists or in a day of a reading plan.
+ * Verses are stored by their {@link OrdinalIndex ordinal} in a compressed bitmap, so that whole sets can be merged,
+ * intersected and subtracted a word at a time rather than comparing References to each other one by one.
+ * <p>
+ * Like a Roaring bitmap, the ordinals are split into chunks of 65536, and each chunk is stored in whichever form is
+ * smaller: a sorted array of the verses present when there are only a few of them, or a bitmap of the whole chunk when
+ * there are many. A complete Bible fits in a single chunk, so in practice the set algebra is done between two arrays,
+ * two bitmaps, or an array and a bitmap.
+ * <p>
+ * A VerseSet belongs to one Bible, and only sets from the same Bible may be combined. The ordinals are those of the
+ * Bible's {@link Bible#getOrdinalIndex() index} when the set was created. A VerseSet is not thread-safe.
+ */
+public final class VerseSet implements Iterable<Reference> {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Container[] NO_CONTAINERS = new Container[0];
+
+    private final Bible bible;
+    private final OrdinalIndex index;
+
+    //the high 16 bits of the ordinals in each container, in ascending order
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    /**
+     * Create an empty set of verses from the given Bible.
+     *
+     * @param bible the Bible the verses are in
+     * @throws IllegalArgumentException if the Bible has no Books
+     */
+    public VerseSet(Bible bible) {
+        OrdinalIndex index = (bible != null) ? bible.getOrdinalIndex() : null;
+        if (index == null) {
+            throw new IllegalArgumentException("A VerseSet needs a Bible with Books");
+        }
+
+        this.bible = bible;
+        this.index = index;
+        this.keys = NO_KEYS;
+        this.containers = NO_CONTAINERS;
+    }
+
+    private VerseSet(Bible bible, OrdinalIndex index, int capacity) {
+        this.bible = bible;
+        this.index = index;
+        this.keys = new char[capacity];
+        this.containers = new Container[capacity];
+    }
+
+    private VerseSet(VerseSet other) {
+        this.bible = other.bible;
+        this.index = other.index;
+        this.keys = Arrays.copyOf(other.keys, other.size);
+        this.containers = new Container[other.size];
+        for (int i = 0; i < other.size; i++) {
+            this.containers[i] = other.containers[i].copy();
+        }
+        this.size = other.size;
+    }
+
+    /**
+     * Create a set of all the verses in the given References.
+     *
+     * @param bible      the Bible the verses are in
+     * @param references the References to add
+     * @return a new set containing every verse of every Reference
+     * @throws IllegalArgumentException if one of the References cannot be found in the Bible
+     */
+    public static VerseSet of(Bible bible, Collection<Reference> references) {
+        VerseSet set = new VerseSet(bible);
+        set.addAll(references);
+        return set;
+    }
+
+    /**
+     * Create a set of all the verses in the given Verses or Passages.
+     *
+     * @param bible  the Bible the verses are in
+     * @param verses the Verses or Passages whose References should be added
+     * @return a new set containing every verse of every Verse or Passage
+     * @throws IllegalArgumentException if one of the References cannot be found in the Bible
+     */
+    public static VerseSet ofVerses(Bible bible, Collection<? extends AbstractVerse> verses) {
+        VerseSet set = new VerseSet(bible);
+        for (AbstractVerse verse : verses) {
+            set.add(verse.getReference());
+        }
+        return set;
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    OrdinalIndex getIndex() {
+        return index;
+    }
+
+//Adding and removing verses
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Add a single verse by its ordinal.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return true if the verse was not already in this set
+     * @throws IllegalArgumentException if the ordinal is not a verse in the Bible
+     */
+    public boolean add(int ordinal) {
+        checkOrdinal(ordinal);
+
+        char key = (char) (ordinal >>> 16);
+        char low = (char) ordinal;
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            i = -i - 1;
+            insertContainer(i, key, new ArrayContainer());
+        }
+
+        Container container = containers[i];
+        if (container.contains(low)) {
+            return false;
+        }
+        containers[i] = container.add(low);
+        return true;
+    }
+
+    /**
+     * Add every verse of a Reference.
+     *
+     * @param reference the Reference to add
+     * @return true if any of its verses were not already in this set
+     * @throws IllegalArgumentException if the Reference cannot be found in the Bible
+     */
+    public boolean add(Reference reference) {
+        int bookIndex = bookIndexOf(reference);
+
+        boolean changed = false;
+        for (int i = 0; i < reference.verseCount(); i++) {
+            changed |= add(ordinalOf(reference, bookIndex, reference.verseAt(i)));
+        }
+        return changed;
+    }
+
+    /**
+     * Add every verse of every Reference in a collection.
+     *
+     * @param references the References to add
+     * @return true if any verses were not already in this set
+     * @throws IllegalArgumentException if one of the References cannot be found in the Bible
+     */
+    public boolean addAll(Collection<Reference> references) {
+        boolean changed = false;
+        for (Reference reference : references) {
+            changed |= add(reference);
+        }
+        return changed;
+    }
+
+    /**
+     * Remove a single verse by its ordinal.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return true if the verse was in this set
+     */
+    public boolean remove(int ordinal) {
+        if (ordinal < 0) {
+            return false;
+        }
+
+        int i = Arrays.binarySearch(keys, 0, size, (char) (ordinal >>> 16));
+        if (i < 0 || !containers[i].contains((char) ordinal)) {
+            return false;
+        }
+
+        containers[i] = containers[i].remove((char) ordinal);
+        if (containers[i].cardinality() == 0) {
+            removeContainer(i);
+        }
+        return true;
+    }
+
+    /**
+     * Remove every verse of a Reference.
+     *
+     * @param reference the Reference to remove
+     * @return true if any of its verses were in this set
+     * @throws IllegalArgumentException if the Reference cannot be found in the Bible
+     */
+    public boolean remove(Reference reference) {
+        int bookIndex = bookIndexOf(reference);
+
+        boolean changed = false;
+        for (int i = 0; i < reference.verseCount(); i++) {
+            changed |= remove(ordinalOf(reference, bookIndex, reference.verseAt(i)));
+        }
+        return changed;
+    }
+
+    /**
+     * Remove every verse from this set.
+     */
+    public void clear() {
+        keys = NO_KEYS;
+        containers = NO_CONTAINERS;
+        size = 0;
+    }
+
+//Querying verses
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Whether a single verse is in this set.
+     *
+     * @param ordinal the ordinal of the verse
+     * @return true if the verse is in this set
+     */
+    public boolean contains(int ordinal) {
+        if (ordinal < 0) {
+            return false;
+        }
+
+        int i = Arrays.binarySearch(keys, 0, size, (char) (ordinal >>> 16));
+        return i >= 0 && containers[i].contains((char) ordinal);
+    }
+
+    /**
+     * Whether every verse of a Reference is in this set.
+     *
+     * @param reference the Reference to look for
+     * @return true if all of its verses are in this set
+     */
+    public boolean containsAll(Reference reference) {
+        int bookIndex = index.indexOf(reference.getBook());
+        for (int i = 0; i < reference.verseCount(); i++) {
+            if (!contains(index.ordinal(bookIndex, reference.getChapter(), reference.verseAt(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether any verse of a Reference is in this set.
+     *
+     * @param reference the Reference to look for
+     * @return true if at least one of its verses is in this set
+     */
+    public boolean intersects(Reference reference) {
+        int bookIndex = index.indexOf(reference.getBook());
+        for (int i = 0; i < reference.verseCount(); i++) {
+            if (contains(index.ordinal(bookIndex, reference.getChapter(), reference.verseAt(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of verses in this set.
+     *
+     * @return the number of verses
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+//Set algebra
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Get a new set with the verses that are in either this set or the other.
+     *
+     * @param other the set to merge with this one
+     * @return the union of the two sets
+     * @throws IllegalArgumentException if the other set is from a different Bible
+     */
+    public VerseSet union(VerseSet other) {
+        checkCompatible(other);
+
+        VerseSet result = new VerseSet(bible, index, this.size + other.size);
+
+        int i = 0;
+        int j = 0;
+        while (i < this.size || j < other.size) {
+            if (j >= other.size || (i < this.size && this.keys[i] < other.keys[j])) {
+                result.appendContainer(this.keys[i], this.containers[i].copy());
+                i++;
+            }
+            else if (i >= this.size || other.keys[j] < this.keys[i]) {
+                result.appendContainer(other.keys[j], other.containers[j].copy());
+                j++;
+            }
+            else {
+                result.appendContainer(this.keys[i], this.containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a new set with the verses that are in both this set and the other.
+     *
+     * @param other the set to intersect with this one
+     * @return the intersection of the two sets
+     * @throws IllegalArgumentException if the other set is from a different Bible
+     */
+    public VerseSet intersection(VerseSet other) {
+        checkCompatible(other);
+
+        VerseSet result = new VerseSet(bible, index, Math.min(this.size, other.size));
+
+        int i = 0;
+        int j = 0;
+        while (i < this.size && j < other.size) {
+            if (this.keys[i] < other.keys[j]) {
+                i++;
+            }
+            else if (other.keys[j] < this.keys[i]) {
+                j++;
+            }
+            else {
+                Container container = this.containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.appendContainer(this.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a new set with the verses that are in this set but not in the other.
+     *
+     * @param other the set of verses to leave out
+     * @return the difference of the two sets
+     * @throws IllegalArgumentException if the other set is from a different Bible
+     */
+    public VerseSet difference(VerseSet other) {
+        checkCompatible(other);
+
+        VerseSet result = new VerseSet(bible, index, this.size);
+
+        int j = 0;
+        for (int i = 0; i < this.size; i++) {
+            while (j < other.size && other.keys[j] < this.keys[i]) {
+                j++;
+            }
+
+            Container container = (j < other.size && other.keys[j] == this.keys[i])
+                    ? this.containers[i].andNot(other.containers[j])
+                    : this.containers[i].copy();
+            if (container.cardinality() > 0) {
+                result.appendContainer(this.keys[i], container);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a copy of this set, which can be changed without changing this one.
+     *
+     * @return a copy of this set
+     */
+    public VerseSet copy() {
+        return new VerseSet(this);
+    }
+
+//Iterating over verses
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Pass the ordinal of each verse in this set to the given action, in ascending order.
+     *
+     * @param action the action to perform on each ordinal
+     */
+    public void forEachOrdinal(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Get the ordinals of every verse in this set.
+     *
+     * @return the ordinals, in ascending order
+     */
+    public int[] toOrdinals() {
+        final int[] ordinals = new int[cardinality()];
+        forEachOrdinal(new IntConsumer() {
+            int next;
+
+            @Override
+            public void accept(int ordinal) {
+                ordinals[next++] = ordinal;
+            }
+        });
+        return ordinals;
+    }
+
+    /**
+     * Turn the verses in this set back into References, with one Reference for each chapter that has any verses in
+     * this set.
+     *
+     * @return the References, in canonical order
+     */
+    public List<Reference> toReferences() {
+        List<Reference> references = new ArrayList<>();
+        int[] ordinals = toOrdinals();
+        Reference.Builder builder = new Reference.Builder();
+
+        int start = 0;
+        while (start < ordinals.length) {
+            int bookIndex = index.bookIndexAt(ordinals[start]);
+            int chapter = index.chapterAt(ordinals[start]);
+            int lastInChapter = index.lastOrdinalOfChapter(bookIndex, chapter);
+
+            int end = start;
+            while (end < ordinals.length && ordinals[end] <= lastInChapter) {
+                end++;
+            }
+
+            int[] verses = new int[end - start];
+            for (int i = start; i < end; i++) {
+                verses[i - start] = index.verseAt(ordinals[i]);
+            }
+
+            builder.setBible(bible);
+            builder.setBook((Book) bible.getBooks().get(bookIndex));
+            builder.setChapter(chapter);
+            builder.setVerses(verses);
+            references.add(builder.create());
+
+            start = end;
+        }
+
+        return references;
+    }
+
+    /**
+     * Iterate over the verses in this set as References, with one Reference for each chapter.
+     *
+     * @return an iterator over the References in canonical order
+     * @see #toReferences()
+     */
+    @Override
+    public Iterator<Reference> iterator() {
+        return toReferences().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VerseSet)) {
+            return false;
+        }
+
+        VerseSet other = (VerseSet) o;
+        return this.bible == other.bible && Arrays.equals(this.toOrdinals(), other.toOrdinals());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toOrdinals());
+    }
+
+    @Override
+    public String toString() {
+        return toReferences().toString();
+    }
+
+//Helpers
+//--------------------------------------------------------------------------------------------------
+
+    private void checkOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= index.size()) {
+            throw new IllegalArgumentException("Ordinal " + ordinal + " is not a verse in " + bible.getName());
+        }
+    }
+
+    private void checkCompatible(VerseSet other) {
+        if (other.index != this.index) {
+            throw new IllegalArgumentException("Only VerseSets from the same Bible can be combined");
+        }
+    }
+
+    private int bookIndexOf(Reference reference) {
+        int bookIndex = index.indexOf(reference.getBook());
+        if (bookIndex < 0) {
+            throw new IllegalArgumentException("The Reference " + reference + " cannot be found in " + bible.getName());
+        }
+        return bookIndex;
+    }
+
+    private int ordinalOf(Reference reference, int bookIndex, int verse) {
+        int ordinal = index.ordinal(bookIndex, reference.getChapter(), verse);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("The Reference " + reference + " cannot be found in " + bible.getName());
+        }
+        return ordinal;
+    }
+
+    private void insertContainer(int i, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container) {
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void removeContainer(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        size--;
+        containers[size] = null;
+    }
+
+//Containers
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * The low 16 bits of the ordinals which share the same high 16 bits. Operations which may change the size of a
+     * container return the container to use from then on, which may be of the other kind.
+     */
+    private abstract static class Container {
+        //beyond this many values, a bitmap of the whole chunk is smaller than an array of its values
+        static final int MAX_ARRAY_SIZE = 4096;
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract int cardinality();
+
+        abstract Container or(Container other);
+
+        abstract Container and(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract Container copy();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality >= MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            ArrayContainer that = (ArrayContainer) other;
+            if (this.cardinality + that.cardinality > MAX_ARRAY_SIZE) {
+                return toBitmap().or(that);
+            }
+
+            char[] merged = new char[this.cardinality + that.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < this.cardinality || j < that.cardinality) {
+                if (j >= that.cardinality || (i < this.cardinality && this.values[i] < that.values[j])) {
+                    merged[count++] = this.values[i++];
+                }
+                else if (i >= this.cardinality || that.values[j] < this.values[i]) {
+                    merged[count++] = that.values[j++];
+                }
+                else {
+                    merged[count++] = this.values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(merged, count);
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] kept = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    kept[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(kept, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] kept = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    kept[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(kept, count);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.set(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        void set(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+            return (cardinality <= MAX_ARRAY_SIZE) ? toArray() : this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < result.words.length; i++) {
+                    result.words[i] |= otherWords[i];
+                    count += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = count;
+            }
+            else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.set(array.values[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[words.length];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return shrink(new BitmapContainer(result, count));
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = Arrays.copyOf(words, words.length);
+            int count = cardinality;
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                count = 0;
+                for (int i = 0; i < words.length; i++) {
+                    result[i] &= ~otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    long bit = 1L << value;
+                    if ((result[value >>> 6] & bit) != 0) {
+                        result[value >>> 6] &= ~bit;
+                        count--;
+                    }
+                }
+            }
+            return shrink(new BitmapContainer(result, count));
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, words.length), cardinality);
+        }
+
+        ArrayContainer toArray() {
+            final char[] values = new char[Math.max(cardinality, 1)];
+            forEach(0, new IntConsumer() {
+                int next;
+
+                @Override
+                public void accept(int value) {
+                    values[next++] = (char) value;
+                }
+            });
+            return new ArrayContainer(values, cardinality);
+        }
+
+        private static Container shrink(BitmapContainer bitmap) {
+            return (bitmap.cardinality <= MAX_ARRAY_SIZE) ? bitmap.toArray() : bitmap;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.eden.bible;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The way a Bible numbers its chapters and verses. Translations do not all agree on where chapters and verses begin,
+ * so the same text may be Psalm 51:1 in one Bible and Psalm 51:3 in another, or Malachi 4:1 in one and Malachi 3:19 in
+ * another. A Versification records each place where a Bible's numbering differs from the {@link #standard() standard}
+ * numbering, as a list of rules which each renumber a run of consecutive verses in a single chapter. Any verse not
+ * covered by a rule has the same number in both.
+ * <p>
+ * Rules are given in terms of Book {@link Book#getLocation() locations}, so the same Versification may be shared by
+ * every Bible which follows it. References are translated between two Bibles with a {@link VersificationMapping},
+ * which is most easily obtained from {@link Bible#getMappingTo(Bible)}. A Versification cannot be changed once built.
+ */
+public final class Versification {
+    private static final Versification STANDARD = new Builder("Standard").build();
+
+    private final String name;
+
+    //the rules sorted by the verses they renumber in this versification
+    final int[] location;
+    final int[] chapter;
+    final int[] firstVerse;
+    final int[] lastVerse;
+    final int[] standardLocation;
+    final int[] standardChapter;
+    final int[] standardFirstVerse;
+
+    //the positions of the rules sorted by the verses they renumber in the standard versification
+    private final int[] byStandard;
+
+    private Versification(String name, List<int[]> rules) {
+        int count = rules.size();
+
+        this.name = name;
+        this.location = new int[count];
+        this.chapter = new int[count];
+        this.firstVerse = new int[count];
+        this.lastVerse = new int[count];
+        this.standardLocation = new int[count];
+        this.standardChapter = new int[count];
+        this.standardFirstVerse = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            int[] rule = rules.get(i);
+            location[i] = rule[0];
+            chapter[i] = rule[1];
+            firstVerse[i] = rule[2];
+            lastVerse[i] = rule[3];
+            standardLocation[i] = rule[4];
+            standardChapter[i] = rule[5];
+            standardFirstVerse[i] = rule[6];
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareVerses(
+                        standardLocation[a], standardChapter[a], standardFirstVerse[a],
+                        standardLocation[b], standardChapter[b], standardFirstVerse[b]);
+            }
+        });
+        this.byStandard = new int[count];
+        for (int i = 0; i < count; i++) {
+            byStandard[i] = order[i];
+        }
+    }
+
+    /**
+     * Get the standard versification, which has no rules. Every Bible uses it until given another with
+     * {@link Bible#setVersification(Versification)}.
+     *
+     * @return the standard versification
+     */
+    public static Versification standard() {
+        return STANDARD;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of rules in which this versification differs from the standard one.
+     *
+     * @return the number of rules
+     */
+    public int ruleCount() {
+        return location.length;
+    }
+
+    /**
+     * Find the rule which renumbers the given verse of this versification.
+     *
+     * @param location the location of the Book
+     * @param chapter  the chapter, 1-indexed
+     * @param verse    the verse, 1-indexed
+     * @return the position of the rule, or -1 if the verse has the same number in the standard versification
+     */
+    int ruleAt(int location, int chapter, int verse) {
+        int low = 0;
+        int high = this.location.length - 1;
+        int found = -1;
+
+        //find the last rule starting at or before the verse
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compareVerses(this.location[mid], this.chapter[mid], firstVerse[mid], location, chapter, verse) <= 0) {
+                found = mid;
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        if (found >= 0
+                && this.location[found] == location
+                && this.chapter[found] == chapter
+                && lastVerse[found] >= verse) {
+            return found;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the rule which renumbers the given verse of the standard versification.
+     *
+     * @param location the location of the Book in the standard versification
+     * @param chapter  the chapter in the standard versification, 1-indexed
+     * @param verse    the verse in the standard versification, 1-indexed
+     * @return the position of the rule, or -1 if no rule renumbers that verse
+     */
+    int standardRuleAt(int location, int chapter, int verse) {
+        int low = 0;
+        int high = byStandard.length - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int rule = byStandard[mid];
+            if (compareVerses(standardLocation[rule], standardChapter[rule], standardFirstVerse[rule], location, chapter, verse) <= 0) {
+                found = rule;
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        if (found >= 0
+                && standardLocation[found] == location
+                && standardChapter[found] == chapter
+                && standardFirstVerse[found] + (lastVerse[found] - firstVerse[found]) >= verse) {
+            return found;
+        }
+        return -1;
+    }
+
+    private static int compareVerses(int locationA, int chapterA, int verseA, int locationB, int chapterB, int verseB) {
+        if (locationA != locationB) {
+            return Integer.compare(locationA, locationB);
+        }
+        if (chapterA != chapterB) {
+            return Integer.compare(chapterA, chapterB);
+        }
+        return Integer.compare(verseA, verseB);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Builds a Versification one rule at a time. For example, a Bible which numbers the titles of the Psalms as their
+     * first verse would renumber Psalm 3:2-9 as the standard Psalm 3:1-8, leaving Psalm 3:1 with no standard verse:
+     * <pre>
+     * new Versification.Builder("Hebrew")
+     *         .map(19, 3, 2, 9, 19, 3, 1)
+     *         .build();
+     * </pre>
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<int[]> rules;
+
+        public Builder(String name) {
+            this.name = name;
+            this.rules = new ArrayList<>();
+        }
+
+        /**
+         * Renumber a run of verses in a single chapter. The verses from firstVerse to lastVerse in this versification
+         * are the same number of consecutive verses, starting from standardFirstVerse, in the standard versification.
+         *
+         * @param location           the location of the Book in this versification
+         * @param chapter            the chapter in this versification
+         * @param firstVerse         the first verse of the run in this versification
+         * @param lastVerse          the last verse of the run in this versification, inclusive
+         * @param standardLocation   the location of the Book in the standard versification
+         * @param standardChapter    the chapter in the standard versification
+         * @param standardFirstVerse the verse in the standard versification which firstVerse corresponds to
+         * @return this Builder, for chaining
+         * @throws IllegalArgumentException if the run is empty or starts before the first verse
+         */
+        public Builder map(int location, int chapter, int firstVerse, int lastVerse,
+                           int standardLocation, int standardChapter, int standardFirstVerse) {
+            if (firstVerse < 1 || lastVerse < firstVerse || standardFirstVerse < 1) {
+                throw new IllegalArgumentException("The verses " + firstVerse + "-" + lastVerse + " are not a valid run");
+            }
+            rules.add(new int[] {
+                    location, chapter, firstVerse, lastVerse,
+                    standardLocation, standardChapter, standardFirstVerse
+            });
+            return this;
+        }
+
+        /**
+         * Create the Versification from the rules given so far.
+         *
+         * @return the new Versification
+         * @throws IllegalArgumentException if two rules renumber the same verse
+         */
+        public Versification build() {
+            List<int[]> sorted = new ArrayList<>(rules);
+            sorted.sort(new Comparator<int[]>() {
+                @Override
+                public int compare(int[] a, int[] b) {
+                    return compareVerses(a[0], a[1], a[2], b[0], b[1], b[2]);
+                }
+            });
+
+            for (int i = 1; i < sorted.size(); i++) {
+                int[] previous = sorted.get(i - 1);
+                int[] rule = sorted.get(i);
+                if (previous[0] == rule[0] && previous[1] == rule[1] && previous[3] >= rule[2]) {
+                    throw new IllegalArgumentException("Two rules in " + name + " renumber chapter " + rule[1]
+                            + " verse " + rule[2] + " of the Book at location " + rule[0]);
+                }
+            }
+
+            return new Versification(name, sorted);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.eden.bible;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Translates verses from one Bible to another whose {@link Versification} may number them differently, such as
+ * finding the verse in a Hebrew-numbered Bible which matches Psalm 51:1 in an English one.
+ * <p>
+ * Every verse {@link OrdinalIndex ordinal} in the source Bible is worked out once, when the mapping is built, and the
+ * results are stored as a table of runs: each run is a range of consecutive source ordinals which map either to
+ * consecutive target ordinals or to nothing at all. Since versifications only differ in a few places, even a whole
+ * Bible needs only a few hundred runs. A single verse is translated by a binary search of the runs, while a
+ * {@link VerseSet} or Reference is translated by walking its sorted ordinals and the runs together, so a set of any
+ * size costs a single linear merge rather than a lookup for every verse.
+ * <p>
+ * Verses with no counterpart in the target Bible, such as a Psalm title which is numbered as a verse in one
+ * versification but not in another, or a Book the target Bible does not have, are left out of the translation. The
+ * ordinals are those of each Bible's {@link Bible#getOrdinalIndex() index} when the mapping was built. A
+ * VersificationMapping cannot be changed once built, and is safe to share between threads.
+ *
+ * @see Bible#getMappingTo(Bible)
+ */
+public final class VersificationMapping {
+    /**
+     * The target ordinal of a run whose verses have no counterpart in the target Bible.
+     */
+    public static final int UNMAPPED = -1;
+
+    private final Bible from;
+    private final Bible to;
+    private final OrdinalIndex fromIndex;
+    private final OrdinalIndex toIndex;
+    private final Versification fromVersification;
+    private final Versification toVersification;
+
+    //the first source ordinal of each run, in ascending order, and the target ordinal it maps to
+    private final int[] runStart;
+    private final int[] runTarget;
+
+    private VersificationMapping(Bible from, Bible to, OrdinalIndex fromIndex, OrdinalIndex toIndex,
+                                 Versification fromVersification, Versification toVersification,
+                                 int[] runStart, int[] runTarget) {
+        this.from = from;
+        this.to = to;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.fromVersification = fromVersification;
+        this.toVersification = toVersification;
+        this.runStart = runStart;
+        this.runTarget = runTarget;
+    }
+
+    /**
+     * Build the mapping of every verse in one Bible to the other. Building takes time proportional to the number of
+     * verses in the source Bible, so prefer {@link Bible#getMappingTo(Bible)}, which keeps the mapping for reuse.
+     *
+     * @param from the Bible to translate verses from
+     * @param to   the Bible to translate verses to
+     * @return the mapping between the two Bibles
+     * @throws IllegalArgumentException if either Bible has no Books
+     */
+    public static VersificationMapping between(Bible from, Bible to) {
+        OrdinalIndex fromIndex = (from != null) ? from.getOrdinalIndex() : null;
+        OrdinalIndex toIndex = (to != null) ? to.getOrdinalIndex() : null;
+        if (fromIndex == null || toIndex == null) {
+            throw new IllegalArgumentException("A VersificationMapping needs two Bibles with Books");
+        }
+
+        Versification fromVersification = from.getVersification();
+        Versification toVersification = to.getVersification();
+        boolean sameVersification = fromVersification == toVersification;
+
+        int[] runStart = new int[16];
+        int[] runTarget = new int[16];
+        int runs = 0;
+
+        int ordinal = 0;
+        int expected = UNMAPPED;
+        for (int bookIndex = 0; bookIndex < fromIndex.bookCount(); bookIndex++) {
+            int sourceLocation = fromIndex.locationOf(bookIndex);
+
+            for (int chapter = 1; chapter <= fromIndex.chapterCount(bookIndex); chapter++) {
+                int verseCount = fromIndex.verseCount(bookIndex, chapter);
+
+                for (int verse = 1; verse <= verseCount; verse++, ordinal++) {
+                    int target = sameVersification
+                            ? toIndex.ordinal(toIndex.indexOfLocation(sourceLocation), chapter, verse)
+                            : translate(fromVersification, toVersification, toIndex, sourceLocation, chapter, verse);
+
+                    //start a new run unless this verse continues the current one
+                    if (runs == 0 || target != expected) {
+                        if (runs == runStart.length) {
+                            runStart = Arrays.copyOf(runStart, runs * 2);
+                            runTarget = Arrays.copyOf(runTarget, runs * 2);
+                        }
+                        runStart[runs] = ordinal;
+                        runTarget[runs] = target;
+                        runs++;
+                    }
+                    expected = (target != UNMAPPED) ? target + 1 : UNMAPPED;
+                }
+            }
+        }
+
+        return new VersificationMapping(from, to, fromIndex, toIndex, fromVersification, toVersification,
+                Arrays.copyOf(runStart, runs), Arrays.copyOf(runTarget, runs));
+    }
+
+    private static int translate(Versification fromVersification, Versification toVersification, OrdinalIndex toIndex,
+                                 int location, int chapter, int verse) {
+        //renumber the verse into the standard versification
+        int rule = fromVersification.ruleAt(location, chapter, verse);
+        if (rule >= 0) {
+            verse = fromVersification.standardFirstVerse[rule] + (verse - fromVersification.firstVerse[rule]);
+            chapter = fromVersification.standardChapter[rule];
+            location = fromVersification.standardLocation[rule];
+        }
+        else if (fromVersification.standardRuleAt(location, chapter, verse) >= 0) {
+            //the source gives this standard verse a different number, so this one has no standard counterpart
+            return UNMAPPED;
+        }
+
+        //then from the standard versification into the target one
+        rule = toVersification.standardRuleAt(location, chapter, verse);
+        if (rule >= 0) {
+            verse = toVersification.firstVerse[rule] + (verse - toVersification.standardFirstVerse[rule]);
+            chapter = toVersification.chapter[rule];
+            location = toVersification.location[rule];
+        }
+        else if (toVersification.ruleAt(location, chapter, verse) >= 0) {
+            //the target uses this number for a different standard verse, so this one has no counterpart
+            return UNMAPPED;
+        }
+
+        return toIndex.ordinal(toIndex.indexOfLocation(location), chapter, verse);
+    }
+
+    public Bible getFrom() {
+        return from;
+    }
+
+    public Bible getTo() {
+        return to;
+    }
+
+    /**
+     * Get the number of runs in the table. Each run is a range of consecutive source ordinals which all shift by the
+     * same amount, or which all have no counterpart in the target Bible.
+     *
+     * @return the number of runs
+     */
+    public int runCount() {
+        return runStart.length;
+    }
+
+    /**
+     * Check whether this mapping still matches the ordinal indexes and versifications of its Bibles, so that
+     * {@link Bible#getMappingTo(Bible)} knows when it must be rebuilt.
+     */
+    boolean isBuiltFrom(Bible from, Bible to) {
+        return this.from == from
+                && this.to == to
+                && fromIndex == from.getOrdinalIndex()
+                && toIndex == to.getOrdinalIndex()
+                && fromVersification == from.getVersification()
+                && toVersification == to.getVersification();
+    }
+
+//Translating verses
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Translate a single verse.
+     *
+     * @param ordinal the ordinal of a verse in the source Bible
+     * @return the ordinal of the same verse in the target Bible, or {@link #UNMAPPED} if it has no counterpart there
+     * @throws IndexOutOfBoundsException if the ordinal is not a verse in the source Bible
+     */
+    public int map(int ordinal) {
+        if (ordinal < 0 || ordinal >= fromIndex.size()) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " is not a verse in " + from.getName());
+        }
+
+        int run = Arrays.binarySearch(runStart, ordinal);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        return (runTarget[run] != UNMAPPED) ? runTarget[run] + (ordinal - runStart[run]) : UNMAPPED;
+    }
+
+    /**
+     * Translate every verse in a set.
+     *
+     * @param verses the verses in the source Bible
+     * @return a new set of the matching verses in the target Bible
+     * @throws IllegalArgumentException if the set is not from the source Bible, or was made from an older version of
+     *                                  its Books
+     */
+    public VerseSet map(VerseSet verses) {
+        if (verses.getBible() != from || verses.getIndex() != fromIndex) {
+            throw new IllegalArgumentException("The VerseSet is not from " + from.getName());
+        }
+
+        RunMerge merge = new RunMerge();
+        verses.forEachOrdinal(merge);
+        return merge.result;
+    }
+
+    /**
+     * Translate the verses of a Reference. A chapter in one versification may be split across two chapters in
+     * another, so the result may have more than one Reference.
+     *
+     * @param reference a Reference in the source Bible
+     * @return the matching References in the target Bible, with one Reference for each chapter, in canonical order.
+     * The list is empty if none of the verses have a counterpart in the target Bible.
+     */
+    public List<Reference> map(Reference reference) {
+        int bookIndex = fromIndex.indexOf(reference.getBook());
+        int chapterStart = fromIndex.firstOrdinalOfChapter(bookIndex, reference.getChapter());
+        if (chapterStart < 0) {
+            return Collections.emptyList();
+        }
+
+        int verseCount = fromIndex.verseCount(bookIndex, reference.getChapter());
+        RunMerge merge = new RunMerge();
+        for (int i = 0; i < reference.verseCount(); i++) {
+            int verse = reference.verseAt(i);
+            if (verse >= 1 && verse <= verseCount) {
+                merge.accept(chapterStart + verse - 1);
+            }
+        }
+        return merge.result.toReferences();
+    }
+
+    /**
+     * Maps ascending source ordinals by moving forward through the runs alongside them.
+     */
+    private final class RunMerge implements IntConsumer {
+        private final VerseSet result = new VerseSet(to);
+        private int run;
+
+        @Override
+        public void accept(int ordinal) {
+            while (run + 1 < runStart.length && runStart[run + 1] <= ordinal) {
+                run++;
+            }
+            if (runTarget[run] != UNMAPPED) {
+                result.add(runTarget[run] + (ordinal - runStart[run]));
+            }
+        }
+    }
+}
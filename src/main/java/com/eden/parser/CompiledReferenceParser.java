@@ -0,0 +1,394 @@
+package com.eden.parser;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Reference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A parser specialized for the Books of a single Bible, which recognizes the common forms of a reference, such as
+ * "John 3:16", "1 Cor. 13" or "Rom 8:28-30, 35", in a single pass over the characters of the input, without lexing it
+ * into Tokens or looking up the book name separately.
+ * <p>
+ * The book name is matched by a transition table compiled from the names and abbreviations of the Books, where every
+ * state already knows which Book the name typed so far resolves to, using the same rules as
+ * {@link Bible#parseBook(String)}. The chapter and verses are then read by a small state machine over the rest of the
+ * input. Anything outside these common forms, or any reference which would not parse cleanly, is not recognized, so
+ * that it can be handed to the general {@link ReferenceParser} instead. A reference that is recognized is parsed into
+ * a Builder exactly as the general parser would have parsed it.
+ * <p>
+ * A CompiledReferenceParser is immutable and can be shared across threads. Get one for a Bible with
+ * {@link CompiledReferenceParser#forBible(Bible)}, which caches them for as long as the Bible is in use.
+ */
+public final class CompiledReferenceParser {
+    private static final Map<Bible, CompiledReferenceParser> cache = new WeakHashMap<>();
+
+    private static final int NONE = Integer.MAX_VALUE;
+    private static final int MAX_NUMBER_LENGTH = 9;
+
+    //character class 0 is every character that cannot be followed within a book name
+    private final int[] classes;
+    private final int classCount;
+
+    //the transition table, with -1 for a missing transition, and the Book that each state resolves to
+    private final int[] transitions;
+    private final int[] resolvesTo;
+    private final int[] resolvesToWhenLeft;
+
+    private final List<?> books;
+    private final int booksSize;
+    private final int booksVersion;
+    private final boolean enabled;
+
+    private CompiledReferenceParser(Bible bible) {
+        List<?> bibleBooks = (bible.getBooks() != null) ? bible.getBooks() : new ArrayList<>();
+        this.books = bibleBooks;
+        this.booksSize = bibleBooks.size();
+        this.booksVersion = bible.getBooksVersion();
+
+        //a Bible which finds its Books some other way cannot have its lookups compiled
+        this.enabled = usesDefaultBookLookup(bible);
+
+        //build a trie of the case-folded names and abbreviations, exactly as the Bible's own index does
+        List<int[]> edges = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        List<Integer> subtree = new ArrayList<>();
+        edges.add(new int[0]);
+        terminal.add(NONE);
+        subtree.add(NONE);
+
+        for (int i = 0; i < booksSize; i++) {
+            Book book = (Book) bibleBooks.get(i);
+            if (book == null) {
+                continue;
+            }
+            for (String key : new String[] {book.getName(), book.getAbbreviation()}) {
+                if (key == null) {
+                    continue;
+                }
+
+                int node = 0;
+                subtree.set(node, Math.min(subtree.get(node), i));
+                for (int j = 0; j < key.length(); j++) {
+                    char ch = fold(key.charAt(j));
+                    int child = findEdge(edges.get(node), ch);
+                    if (child == -1) {
+                        child = edges.size();
+                        edges.add(new int[0]);
+                        terminal.add(NONE);
+                        subtree.add(NONE);
+
+                        int[] nodeEdges = edges.get(node);
+                        int[] newEdges = Arrays.copyOf(nodeEdges, nodeEdges.length + 2);
+                        newEdges[nodeEdges.length] = ch;
+                        newEdges[nodeEdges.length + 1] = child;
+                        edges.set(node, newEdges);
+                    }
+                    node = child;
+                    subtree.set(node, Math.min(subtree.get(node), i));
+                }
+                terminal.set(node, Math.min(terminal.get(node), i));
+            }
+        }
+
+        //only letters, spaces and the digits of a numbered book can be walked, so only they get a character class
+        this.classes = new int[128];
+        int nextClass = 1;
+        for (int[] nodeEdges : edges) {
+            for (int j = 0; j < nodeEdges.length; j += 2) {
+                int ch = nodeEdges[j];
+                if (ch < 128 && classes[ch] == 0 && isBookCharacter((char) ch)) {
+                    classes[ch] = nextClass++;
+                }
+            }
+        }
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            classes[ch] = classes[fold(ch)];
+        }
+        this.classCount = nextClass;
+
+        //flatten the trie into a table, and resolve every state in the same walk that the Bible's index makes
+        int states = edges.size();
+        this.transitions = new int[states * classCount];
+        this.resolvesTo = new int[states];
+        this.resolvesToWhenLeft = new int[states];
+        Arrays.fill(transitions, -1);
+
+        int[] stack = new int[states];
+        int top = 0;
+        stack[top++] = 0;
+        resolvesToWhenLeft[0] = terminal.get(0);
+        while (top > 0) {
+            int node = stack[--top];
+            resolvesTo[node] = Math.min(resolvesToWhenLeft[node], subtree.get(node));
+
+            int[] nodeEdges = edges.get(node);
+            for (int j = 0; j < nodeEdges.length; j += 2) {
+                int ch = nodeEdges[j];
+                int child = nodeEdges[j + 1];
+                resolvesToWhenLeft[child] = Math.min(resolvesToWhenLeft[node], terminal.get(child));
+                if (ch < 128 && classes[ch] != 0) {
+                    transitions[node * classCount + classes[ch]] = child;
+                }
+                stack[top++] = child;
+            }
+        }
+    }
+
+    /**
+     * Get the compiled parser for a Bible, compiling it the first time it is needed, or again if the Books in the
+     * Bible have changed since it was compiled.
+     *
+     * @param bible the Bible to parse references for
+     * @return the compiled parser for that Bible
+     */
+    public static CompiledReferenceParser forBible(Bible bible) {
+        synchronized (cache) {
+            CompiledReferenceParser parser = cache.get(bible);
+            if (parser == null || !parser.isCompiledFrom(bible)) {
+                parser = new CompiledReferenceParser(bible);
+                cache.put(bible, parser);
+            }
+            return parser;
+        }
+    }
+
+    /**
+     * Whether this parser was compiled from the current Books of a Bible.
+     *
+     * @param bible the Bible to check
+     * @return true if this parser can still be used to parse references for that Bible
+     */
+    boolean isCompiledFrom(Bible bible) {
+        return bible.getBooks() == books
+                && books.size() == booksSize
+                && bible.getBooksVersion() == booksVersion;
+    }
+
+    /**
+     * Try to parse a reference into a Builder, which should have been cleared for parsing and have this parser's Bible
+     * set. If the reference is not recognized, the Builder is left untouched.
+     *
+     * @param reference the String to parse
+     * @param builder   the Builder to parse the reference into
+     * @return true if the reference was recognized and parsed, false if it should be parsed by the general parser
+     */
+    public boolean parse(CharSequence reference, Reference.Builder builder) {
+        if (!enabled || reference == null) {
+            return false;
+        }
+
+        int n = reference.length();
+        int i = skipWhitespace(reference, 0);
+
+        //book ::= ([123]) word { word }, where a number and the words are joined by single spaces
+        int state = 0;
+        int left = -1;
+        if (i < n && reference.charAt(i) >= '1' && reference.charAt(i) <= '3') {
+            int afterNumber = skipWhitespace(reference, i + 1);
+            if (afterNumber >= n || !isAsciiLetter(reference.charAt(afterNumber))) {
+                return false;
+            }
+            for (char ch : new char[] {reference.charAt(i), ' '}) {
+                if (state != -1) {
+                    int next = step(state, ch);
+                    if (next == -1) {
+                        left = state;
+                    }
+                    state = next;
+                }
+            }
+            i = afterNumber;
+        }
+
+        if (i >= n || !isAsciiLetter(reference.charAt(i))) {
+            return false;
+        }
+
+        while (true) {
+            while (i < n && isAsciiLetter(reference.charAt(i))) {
+                if (state != -1) {
+                    int next = step(state, reference.charAt(i));
+                    if (next == -1) {
+                        left = state;
+                    }
+                    state = next;
+                }
+                i++;
+            }
+
+            int nextWord = skipWhitespace(reference, i);
+            if (nextWord > i && nextWord < n && isAsciiLetter(reference.charAt(nextWord))) {
+                if (state != -1) {
+                    int next = step(state, ' ');
+                    if (next == -1) {
+                        left = state;
+                    }
+                    state = next;
+                }
+                i = nextWord;
+            }
+            else {
+                break;
+            }
+        }
+
+        int bookIndex = (state != -1) ? resolvesTo[state] : resolvesToWhenLeft[left];
+        if (bookIndex == NONE) {
+            return false;
+        }
+        Book book = (Book) books.get(bookIndex);
+
+        //only modify the Builder once the whole reference is known to be valid
+        if (!chapterAndVerses(reference, i, book, null)) {
+            return false;
+        }
+
+        builder.setBook(book);
+        chapterAndVerses(reference, i, book, builder);
+        return true;
+    }
+
+    /**
+     * Read the chapter and verses after the book, either checking that they are all valid for the Book, or adding
+     * them to the Builder once they have been checked.
+     *
+     * @param reference the String being parsed
+     * @param i         the index just past the book name
+     * @param book      the Book that was found
+     * @param builder   the Builder to add the chapter and verses to, or null to only check them
+     * @return true if the rest of the reference is recognized and valid
+     */
+    //tail ::= ('.') chapter ([:.] verse ('-' verse) { ',' verse ('-' verse) })
+    private boolean chapterAndVerses(CharSequence reference, int i, Book book, Reference.Builder builder) {
+        int n = reference.length();
+
+        i = skipWhitespace(reference, i);
+        if (i < n && reference.charAt(i) == '.') {
+            i = skipWhitespace(reference, i + 1);
+        }
+
+        int end = numberEnd(reference, i);
+        int chapter = numberValue(reference, i, end);
+        if (chapter < 1 || !book.validateChapter(chapter)) {
+            return false;
+        }
+        if (builder != null) {
+            builder.setChapter(chapter);
+        }
+
+        i = skipWhitespace(reference, end);
+        if (i >= n) {
+            return true;
+        }
+        if (reference.charAt(i) != ':' && reference.charAt(i) != '.') {
+            return false;
+        }
+
+        while (true) {
+            i = skipWhitespace(reference, i + 1);
+            end = numberEnd(reference, i);
+            int from = numberValue(reference, i, end);
+            int to = from;
+            if (from < 1 || !book.validateVerseInChapter(chapter, from)) {
+                return false;
+            }
+
+            i = skipWhitespace(reference, end);
+            if (i < n && reference.charAt(i) == '-') {
+                i = skipWhitespace(reference, i + 1);
+                end = numberEnd(reference, i);
+                to = numberValue(reference, i, end);
+                if (to < from || !book.validateVerseInChapter(chapter, to)) {
+                    return false;
+                }
+                i = skipWhitespace(reference, end);
+            }
+
+            if (builder != null) {
+                builder.addRange(from, to);
+            }
+
+            if (i >= n) {
+                return true;
+            }
+            if (reference.charAt(i) != ',') {
+                return false;
+            }
+        }
+    }
+
+    private int step(int state, char ch) {
+        if (ch >= 128) {
+            return -1;
+        }
+        int characterClass = classes[ch];
+        return (characterClass != 0) ? transitions[state * classCount + characterClass] : -1;
+    }
+
+    private static int skipWhitespace(CharSequence reference, int i) {
+        while (i < reference.length() && TokenStream.isWhitespace(reference.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int numberEnd(CharSequence reference, int i) {
+        while (i < reference.length() && reference.charAt(i) >= '0' && reference.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Read the number between two indices, which must all be digits.
+     *
+     * @return the value of the number, or -1 if there is no number or it is too long
+     */
+    private static int numberValue(CharSequence reference, int start, int end) {
+        if (start == end || end - start > MAX_NUMBER_LENGTH) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (reference.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isAsciiLetter(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+    }
+
+    private static boolean isBookCharacter(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= '1' && ch <= '3') || ch == ' ';
+    }
+
+    private static int findEdge(int[] edges, char ch) {
+        for (int j = 0; j < edges.length; j += 2) {
+            if (edges[j] == ch) {
+                return edges[j + 1];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean usesDefaultBookLookup(Bible bible) {
+        try {
+            return bible.getClass().getMethod("parseBook", String.class).getDeclaringClass() == Bible.class;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static char fold(char ch) {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+}
@@ -0,0 +1,343 @@
+package com.eden.parser;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of parsed references, which can be shared by any number of
+ * {@link com.eden.bible.Reference.Builder}s with {@link com.eden.bible.Reference.Builder#setParseCache(ParseCache)}.
+ * When the same String is parsed against the same Bible again, the Builder is given the cached result instead of
+ * running the parser. Entries are keyed by the Bible instance, the {@link Bible#getBooksVersion() version} of its Books
+ * and its {@link Bible#getMaxEditDistance() maximum edit distance}, and the input String with its whitespace
+ * normalized. Changing the Books or the edit distance of a Bible therefore stops its old results from being used, and
+ * they are evicted in time like any other unused entry. The Bible is only held weakly, so caching its results does
+ * not keep it from being collected.
+ * <p>
+ * Entries are held in a {@link ConcurrentHashMap} and evicted with the CLOCK algorithm, an approximation of
+ * least-recently used eviction: a hit only marks its entry as recently used, without taking a lock or reordering
+ * anything, so any number of threads can hit the cache at once. Adding an entry to a full cache sweeps a hand around
+ * the entries, giving each marked entry a second chance and evicting the first unmarked one.
+ * <p>
+ * Counters for hits, misses, and evictions are kept so that the cache can be sized to fit real traffic.
+ */
+public final class ParseCache {
+    private final int maximumSize;
+    private final ConcurrentHashMap<Key, Node> entries;
+
+    //the clock, guarded by its own lock, which is only taken when adding entries
+    private final Object clockLock;
+    private final Node[] clock;
+    private int clockSize;
+    private int hand;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Create a new, empty cache which holds at most the given number of parsed references.
+     *
+     * @param maximumSize the maximum number of entries to keep
+     * @throws IllegalArgumentException if maximumSize is less than 1
+     */
+    public ParseCache(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("A ParseCache must be able to hold at least one entry");
+        }
+
+        this.maximumSize = maximumSize;
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, 1024));
+        this.clockLock = new Object();
+        this.clock = new Node[maximumSize];
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Get the cached result of parsing a String against a Bible, counting it as either a hit or a miss.
+     *
+     * @param bible     the Bible the String is parsed against
+     * @param reference the String being parsed
+     * @return the cached result, or null if it has not been cached
+     */
+    public Entry get(Bible bible, String reference) {
+        Node node = entries.get(new LookupKey(bible, reference));
+        if (node != null) {
+            node.referenced = true;
+            hitCount.increment();
+            return node.entry;
+        }
+        else {
+            missCount.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Cache the result of parsing a String against a Bible, evicting an entry which has not been used recently if the
+     * cache is full. If the String has already been cached for that Bible, the existing entry is kept.
+     *
+     * @param bible     the Bible the String was parsed against
+     * @param reference the String that was parsed
+     * @param entry     the result of parsing
+     */
+    public void put(Bible bible, String reference, Entry entry) {
+        Node node = new Node(new StoredKey(bible, reference), entry);
+
+        synchronized (clockLock) {
+            if (entries.putIfAbsent(node.key, node) != null) {
+                return;
+            }
+
+            if (clockSize < maximumSize) {
+                clock[clockSize++] = node;
+                return;
+            }
+
+            //give every recently-used entry a second chance, and replace the first one which has not been used
+            while (clock[hand].referenced) {
+                clock[hand].referenced = false;
+                hand = (hand + 1) % maximumSize;
+            }
+            entries.remove(clock[hand].key, clock[hand]);
+            evictionCount.increment();
+            clock[hand] = node;
+            hand = (hand + 1) % maximumSize;
+        }
+    }
+
+    /**
+     * Remove all entries from this cache. The hit, miss, and eviction counts are kept.
+     */
+    public void clear() {
+        synchronized (clockLock) {
+            entries.clear();
+            Arrays.fill(clock, null);
+            clockSize = 0;
+            hand = 0;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Trim the input and collapse all runs of whitespace within it to a single space, since whitespace is not
+     * significant to the parser. Returns the input itself if it is already normalized.
+     *
+     * @param reference the input to normalize
+     * @return the normalized input
+     */
+    static String normalize(String reference) {
+        if (reference == null) {
+            return "";
+        }
+
+        boolean normalized = true;
+        for (int i = 0; i < reference.length() && normalized; i++) {
+            char ch = reference.charAt(i);
+            if (TokenStream.isWhitespace(ch)) {
+                normalized = ch == ' ' && i > 0 && i < reference.length() - 1
+                        && !TokenStream.isWhitespace(reference.charAt(i + 1));
+            }
+        }
+        if (normalized) {
+            return reference;
+        }
+
+        StringBuilder sb = new StringBuilder(reference.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < reference.length(); i++) {
+            char ch = reference.charAt(i);
+            if (TokenStream.isWhitespace(ch)) {
+                pendingSpace = sb.length() > 0;
+            }
+            else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Node {
+        private final StoredKey key;
+        private final Entry entry;
+
+        //set on every hit, and cleared as the clock hand passes
+        private volatile boolean referenced;
+
+        private Node(StoredKey key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * A Bible, the state of that Bible which parsing depends on, and a normalized input. Keys are compared by the
+     * identity of their Bible, so lookups can use a {@link LookupKey} which holds the Bible directly, while the keys
+     * kept in the cache are {@link StoredKey}s which only hold it weakly.
+     */
+    private abstract static class Key {
+        private final int booksVersion;
+        private final int maxEditDistance;
+        private final String reference;
+        private final int hash;
+
+        private Key(Bible bible, String reference) {
+            this.booksVersion = (bible != null) ? bible.getBooksVersion() : 0;
+            this.maxEditDistance = (bible != null) ? bible.getMaxEditDistance() : 0;
+            this.reference = normalize(reference);
+
+            int result = System.identityHashCode(bible);
+            result = 31 * result + booksVersion;
+            result = 31 * result + maxEditDistance;
+            result = 31 * result + this.reference.hashCode();
+            this.hash = result;
+        }
+
+        abstract Bible bible();
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            if (this.hash != other.hash
+                    || this.booksVersion != other.booksVersion
+                    || this.maxEditDistance != other.maxEditDistance
+                    || !this.reference.equals(other.reference)) {
+                return false;
+            }
+
+            //a collected Bible never matches anything, not even another collected Bible
+            Bible bible = this.bible();
+            return bible != null && bible == other.bible();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class LookupKey extends Key {
+        private final Bible bible;
+
+        private LookupKey(Bible bible, String reference) {
+            super(bible, reference);
+            this.bible = bible;
+        }
+
+        @Override
+        Bible bible() {
+            return bible;
+        }
+    }
+
+    private static final class StoredKey extends Key {
+        private final WeakReference<Bible> bible;
+
+        private StoredKey(Bible bible, String reference) {
+            super(bible, reference);
+            this.bible = new WeakReference<>(bible);
+        }
+
+        @Override
+        Bible bible() {
+            return bible.get();
+        }
+    }
+
+    /**
+     * The immutable result of parsing a String: the Book, chapter and verses that were parsed, and the flags that the
+     * Builder had set when the parser finished.
+     */
+    public static final class Entry {
+        private final Book book;
+        private final int chapter;
+        private final int[] verses;
+        private final int flags;
+
+        public Entry(Book book, int chapter, Collection<Integer> verses, int flags) {
+            this.book = book;
+            this.chapter = chapter;
+            this.flags = flags;
+
+            this.verses = new int[verses.size()];
+            int i = 0;
+            for (int verse : verses) {
+                this.verses[i++] = verse;
+            }
+        }
+
+        /**
+         * Create an Entry from the first {@code count} verses of an array, such as the verse buffer of a Builder.
+         *
+         * @param book    the parsed Book
+         * @param chapter the parsed chapter
+         * @param verses  the array holding the parsed verses, which is copied
+         * @param count   the number of verses in the array
+         * @param flags   the Builder's flags after parsing
+         */
+        public Entry(Book book, int chapter, int[] verses, int count, int flags) {
+            this.book = book;
+            this.chapter = chapter;
+            this.flags = flags;
+            this.verses = Arrays.copyOf(verses, count);
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public int getChapter() {
+            return chapter;
+        }
+
+        /**
+         * Get the verses that were parsed, in the order they were added.
+         *
+         * @return a copy of the parsed verses
+         */
+        public int[] getVerses() {
+            return Arrays.copyOf(verses, verses.length);
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.eden.parser;
+
+import com.eden.bible.Reference;
+
+/**
+ * The outcome of parsing a single String into a Reference. A ParseResult always holds the Reference that was created
+ * from the input, even if parsing failed, along with the flags of the {@link Reference.Builder} that parsed it, so that
+ * a failed parse can be told apart from a successful one with {@link Reference.Builder#PARSE_SUCCESS} and
+ * {@link Reference.Builder#PARSE_FAILURE}.
+ * <p>
+ * When parsing fails, the result also describes the first problem the parser found and the character position in the
+ * input where it was found, so that bad input can be reported without any exceptions being thrown.
+ */
+public final class ParseResult {
+
+    /**
+     * The kinds of problems that can be found in the input to the parser.
+     */
+    public enum ErrorKind {
+        /** The input was parsed without any problems */
+        NONE,
+        /** The input was null, or had no tokens in it */
+        EMPTY_INPUT,
+        /** The input did not start with a book name */
+        MISSING_BOOK,
+        /** The book name did not match any Book in the Bible */
+        UNKNOWN_BOOK,
+        /** The book was not followed by a chapter */
+        MISSING_CHAPTER,
+        /** The chapter does not exist in the Book */
+        INVALID_CHAPTER,
+        /** A verse does not exist in the chapter, or punctuation was not followed by a verse */
+        INVALID_VERSE,
+        /** Verses were required, but none were given */
+        MISSING_VERSES,
+        /** A token was found where it does not belong */
+        UNEXPECTED_TOKEN,
+        /** A number was too large to be a chapter or verse */
+        NUMBER_OVERFLOW
+    }
+
+    private final String input;
+    private final Reference reference;
+    private final int flags;
+    private final ErrorKind errorKind;
+    private final int errorPosition;
+
+    public ParseResult(String input, Reference reference, int flags) {
+        this(input, reference, flags, ErrorKind.NONE, -1);
+    }
+
+    public ParseResult(String input, Reference reference, int flags, ErrorKind errorKind, int errorPosition) {
+        this.input = input;
+        this.reference = reference;
+        this.flags = flags;
+        this.errorKind = (errorKind != null) ? errorKind : ErrorKind.NONE;
+        this.errorPosition = (this.errorKind != ErrorKind.NONE) ? errorPosition : -1;
+    }
+
+    /**
+     * Get the String that was parsed.
+     *
+     * @return the input to the parser
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Get the Reference created from the input. If parsing failed, this will be whatever Reference the Builder was able
+     * to create from its default values.
+     *
+     * @return the parsed Reference
+     */
+    public Reference getReference() {
+        return reference;
+    }
+
+    /**
+     * Get the flags of the Builder at the time the Reference was created.
+     *
+     * @return the Builder's bit flags
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Check to see if a given flag was set on the Builder when the Reference was created.
+     *
+     * @param flag the bit flag to check
+     * @return true if the flag was set
+     */
+    public boolean checkFlag(int flag) {
+        return ((flags & flag) == flag);
+    }
+
+    /**
+     * Whether the input was parsed successfully.
+     *
+     * @return true if the PARSE_SUCCESS flag was set
+     */
+    public boolean isSuccess() {
+        return checkFlag(Reference.Builder.PARSE_SUCCESS);
+    }
+
+    /**
+     * Get the first problem the parser found in the input. When parsing leniently, the parser skips past problems it
+     * can recover from, so a successful result may still report the first problem that was skipped.
+     *
+     * @return the kind of the first problem found, or NONE
+     */
+    public ErrorKind getErrorKind() {
+        return errorKind;
+    }
+
+    /**
+     * Get the character position in the input of the first problem the parser found.
+     *
+     * @return the index in the input where the problem was found, or -1 if there were no problems
+     */
+    public int getErrorPosition() {
+        return errorPosition;
+    }
+
+    @Override
+    public String toString() {
+        return input + " -> " + reference + (isSuccess() ? "" : " (failed)")
+                + ((errorKind != ErrorKind.NONE) ? " [" + errorKind + " at " + errorPosition + "]" : "");
+    }
+}
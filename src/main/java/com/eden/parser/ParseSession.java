@@ -0,0 +1,118 @@
+package com.eden.parser;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Reference;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses text as it is being typed, such as into a search box, where each input is an edit of the one before it. A
+ * session keeps the Tokens lexed from the previous input and the Book it resolved, so that appending or deleting a few
+ * characters only lexes the input again from the first changed character.
+ * <p>
+ * After each update, the session can suggest how the input might be completed: the Books whose names start with what
+ * has been typed so far, or the range of chapters or verses that are valid once a Book or chapter has been given.
+ * <p>
+ * A ParseSession is not thread-safe. If the Books in the Bible are changed, the session should be {@link #reset()}.
+ */
+public class ParseSession {
+    private final Reference.Builder builder;
+    private final ReferenceParser parser;
+
+    private String input;
+    private ParseResult result;
+
+    public ParseSession(Bible bible) {
+        this.builder = new Reference.Builder();
+        this.builder.setBible(bible);
+        this.parser = builder.getParser();
+        this.parser.setIncremental(true);
+
+        this.input = "";
+    }
+
+    /**
+     * Parse the current text of the input. The text does not need to share anything with the previous text, but the
+     * more it does, the less work needs to be done.
+     *
+     * @param input the full text that has been typed so far
+     * @return the result of parsing the text
+     */
+    public ParseResult update(String input) {
+        this.input = (input != null) ? input : "";
+        this.result = builder.tryParseReference(this.input);
+        return result;
+    }
+
+    /**
+     * Forget everything remembered from previous updates.
+     */
+    public void reset() {
+        parser.clear();
+        this.input = "";
+        this.result = null;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Get the result of the last update.
+     *
+     * @return the last result, or null if the session has not been updated
+     */
+    public ParseResult getResult() {
+        return result;
+    }
+
+    /**
+     * Get the Books that could complete the book name typed so far. Once a chapter has been typed after the book,
+     * there is nothing left to complete and the list is empty.
+     *
+     * @return the Books whose name or abbreviation starts with the typed book name, in the order of the Bible
+     */
+    @SuppressWarnings("unchecked")
+    public List<Book> getBookCompletions() {
+        if (result == null || parser.hasParsedChapter() || parser.getBookName().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return (List<Book>) builder.getBible().getBooksStartingWith(parser.getBookName());
+    }
+
+    /**
+     * Get the number of chapters in the Book typed so far, so that valid chapters are 1 through this number.
+     *
+     * @return the number of chapters, or 0 if no Book has been found
+     */
+    public int getChapterCount() {
+        if (!hasBook()) {
+            return 0;
+        }
+
+        return Math.max(result.getReference().getBook().numChapters(), 0);
+    }
+
+    /**
+     * Get the number of verses in the chapter typed so far, so that valid verses are 1 through this number.
+     *
+     * @return the number of verses, or 0 if no valid chapter has been found
+     */
+    public int getVerseCount() {
+        if (!hasBook() || !parser.hasParsedChapter() || result.checkFlag(Reference.Builder.DEFAULT_CHAPTER_FLAG)) {
+            return 0;
+        }
+
+        Reference reference = result.getReference();
+        return Math.max(reference.getBook().numVersesInChapter(reference.getChapter()), 0);
+    }
+
+    private boolean hasBook() {
+        return result != null
+                && !parser.getBookName().isEmpty()
+                && !result.checkFlag(Reference.Builder.DEFAULT_BOOK_FLAG);
+    }
+}
@@ -0,0 +1,412 @@
+package com.eden.parser;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Reference;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Finds References embedded in free text, such as transcripts, articles, or whole books, in a single pass over the
+ * text and in constant memory, so that it can be used on inputs far too large to hold in memory at once.
+ * <p>
+ * Candidates are located with an Aho-Corasick automaton built from the names and abbreviations of the Books in a
+ * Bible, matched ignoring case and treating any run of whitespace as a single space. A name only starts a candidate if
+ * it is not in the middle of a word, and is followed by a chapter and optional verses, such as "Rom. 8:28-30, 35".
+ * The longest name ending at a given point wins, so "1 John 3:16" is not also found as "John 3:16". Each candidate is
+ * then handed to the parser, and a {@link ReferenceMatch} is emitted as soon as it parses successfully.
+ * <p>
+ * The extractor only remembers as many characters as its longest Book name plus a short tail of chapter and verse
+ * numbers, no matter how large the input is. A ReferenceExtractor is not thread-safe, but may be reused for any number
+ * of inputs one after the other.
+ */
+public class ReferenceExtractor {
+    private static final int MAX_TAIL_LENGTH = 64;
+
+    private static final int TAIL_START = 0;
+    private static final int TAIL_DIGIT = 1;
+    private static final int TAIL_SEPARATOR = 2;
+
+    private final Bible bible;
+    private final Automaton automaton;
+    private final Reference.Builder builder;
+
+    //the most recent characters that have been fed to the automaton, and their offsets in the input
+    private final char[] recent;
+    private final long[] recentOffsets;
+    private long fedCount;
+    private boolean lastWasWhitespace;
+    private int state;
+
+    //the candidate currently being collected, and the end of the last match that was emitted
+    private final StringBuilder candidate;
+    private boolean collecting;
+    private long candidateStart;
+    private int candidateKeyLength;
+    private int tailState;
+    private boolean spaceInTail;
+    private int lastGoodLength;
+    private long lastGoodEnd;
+    private long lastEnd;
+
+    private Consumer<ReferenceMatch> onMatch;
+
+    public ReferenceExtractor(Bible bible) {
+        this.bible = bible;
+        this.automaton = new Automaton(bible);
+        this.builder = new Reference.Builder();
+
+        this.recent = new char[automaton.maxKeyLength + 1];
+        this.recentOffsets = new long[automaton.maxKeyLength + 1];
+        this.candidate = new StringBuilder(automaton.maxKeyLength + MAX_TAIL_LENGTH);
+    }
+
+    /**
+     * Find all References in the text read from a Reader. The Reader is read in small chunks until it is exhausted,
+     * and each match is passed to onMatch as soon as it is found. Offsets are counted in chars from the first char
+     * read. The Reader is not closed.
+     * <p>
+     * To scan a memory-mapped file without decoding all of it at once, wrap its channel in a Reader with
+     * {@link java.nio.channels.Channels#newReader(java.nio.channels.ReadableByteChannel, String)}.
+     *
+     * @param reader  the text to search
+     * @param onMatch called with each Reference found, in the order they appear in the text
+     * @throws IOException if the Reader throws
+     */
+    public void extract(Reader reader, Consumer<ReferenceMatch> onMatch) throws IOException {
+        begin(onMatch);
+
+        char[] buffer = new char[8192];
+        long offset = 0;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                next(buffer[i], offset++);
+            }
+        }
+
+        end();
+    }
+
+    /**
+     * Find all References in a sequence of characters, such as a String or a {@link java.nio.CharBuffer}. Each match is
+     * passed to onMatch as soon as it is found, and offsets are indices into the sequence.
+     *
+     * @param text    the text to search
+     * @param onMatch called with each Reference found, in the order they appear in the text
+     */
+    public void extract(CharSequence text, Consumer<ReferenceMatch> onMatch) {
+        begin(onMatch);
+
+        for (int i = 0; i < text.length(); i++) {
+            next(text.charAt(i), i);
+        }
+
+        end();
+    }
+
+    /**
+     * Find all References in a sequence of characters and collect them into a List.
+     *
+     * @param text the text to search
+     * @return every Reference found, in the order they appear in the text
+     */
+    public List<ReferenceMatch> extract(CharSequence text) {
+        List<ReferenceMatch> matches = new ArrayList<>();
+        extract(text, matches::add);
+        return matches;
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    private void begin(Consumer<ReferenceMatch> onMatch) {
+        this.onMatch = onMatch;
+        this.fedCount = 0;
+        this.lastWasWhitespace = false;
+        this.state = 0;
+        this.collecting = false;
+        this.lastEnd = 0;
+    }
+
+    private void end() {
+        if (collecting) {
+            finishCandidate();
+        }
+        this.onMatch = null;
+    }
+
+    private void next(char ch, long offset) {
+        //collapse runs of whitespace into a single space, which is all that the automaton and the tail ever see
+        if (TokenStream.isWhitespace(ch)) {
+            if (lastWasWhitespace) {
+                return;
+            }
+            lastWasWhitespace = true;
+            ch = ' ';
+        }
+        else {
+            lastWasWhitespace = false;
+        }
+
+        int slot = (int) (fedCount % recent.length);
+        recent[slot] = ch;
+        recentOffsets[slot] = offset;
+        fedCount++;
+
+        if (collecting) {
+            collectTail(ch, offset);
+        }
+
+        state = automaton.step(state, fold(ch));
+        if (!collecting) {
+            startCandidate(automaton.outputs[state]);
+        }
+    }
+
+    /**
+     * Start collecting a candidate from the longest key which ends at the current character, does not start in the
+     * middle of a word, and does not overlap the last match.
+     *
+     * @param keyLengths the lengths of all keys ending at the current character, longest first
+     */
+    private void startCandidate(int[] keyLengths) {
+        for (int keyLength : keyLengths) {
+            long first = fedCount - keyLength;
+
+            if (first > 0 && Character.isLetterOrDigit(recent[(int) ((first - 1) % recent.length)])) {
+                continue;
+            }
+            if (recentOffsets[(int) (first % recent.length)] < lastEnd) {
+                continue;
+            }
+
+            candidate.setLength(0);
+            for (long i = first; i < fedCount; i++) {
+                candidate.append(recent[(int) (i % recent.length)]);
+            }
+            collecting = true;
+            candidateStart = recentOffsets[(int) (first % recent.length)];
+            candidateKeyLength = keyLength;
+            tailState = TAIL_START;
+            spaceInTail = false;
+            lastGoodLength = 0;
+            return;
+        }
+    }
+
+    //tail ::= ('.') number { punctuation number }
+    private void collectTail(char ch, long offset) {
+        boolean accepted;
+
+        if (candidate.length() - candidateKeyLength >= MAX_TAIL_LENGTH) {
+            accepted = false;
+        }
+        else if (ch == ' ') {
+            spaceInTail = true;
+            accepted = true;
+        }
+        else if (ch >= '0' && ch <= '9') {
+            //the chapter must be set apart from the book, and two numbers must be separated by punctuation
+            accepted = (tailState == TAIL_START && candidate.length() > candidateKeyLength)
+                    || tailState == TAIL_SEPARATOR
+                    || (tailState == TAIL_DIGIT && !spaceInTail);
+
+            if (accepted) {
+                tailState = TAIL_DIGIT;
+                spaceInTail = false;
+                candidate.append(ch);
+                lastGoodLength = candidate.length();
+                lastGoodEnd = offset + 1;
+                return;
+            }
+        }
+        else if (isSeparator(ch)) {
+            //only an abbreviating period may come between the book and the chapter
+            accepted = (tailState == TAIL_START && ch == '.' && candidate.length() == candidateKeyLength)
+                    || tailState == TAIL_DIGIT;
+
+            if (accepted) {
+                tailState = TAIL_SEPARATOR;
+                spaceInTail = false;
+                candidate.append((ch == '\u2013' || ch == '\u2014') ? '-' : ch);
+                return;
+            }
+        }
+        else {
+            accepted = false;
+        }
+
+        if (accepted) {
+            candidate.append(ch);
+        }
+        else {
+            finishCandidate();
+        }
+    }
+
+    /**
+     * Stop collecting the current candidate, and parse everything up to its last number. Emit a match if it parses.
+     */
+    private void finishCandidate() {
+        collecting = false;
+
+        if (lastGoodLength == 0) {
+            return;
+        }
+
+        String text = candidate.substring(0, lastGoodLength);
+        builder.setBible(bible);
+        builder.parseReference(text);
+
+        if (builder.checkFlag(Reference.Builder.PARSE_SUCCESS)) {
+            lastEnd = lastGoodEnd;
+            onMatch.accept(new ReferenceMatch(builder.create(), text, candidateStart, lastGoodEnd));
+        }
+    }
+
+    private static boolean isSeparator(char ch) {
+        return ch == ':' || ch == '.' || ch == ',' || ch == '-' || ch == '\u2013' || ch == '\u2014';
+    }
+
+    private static char fold(char ch) {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+
+    /**
+     * An Aho-Corasick automaton over the case-folded names and abbreviations of the Books in a Bible. Each state knows
+     * the lengths of every key that ends when it is reached, so that finding all the keys ending at a character is a
+     * single array lookup.
+     */
+    private static final class Automaton {
+        private char[][] keys;
+        private int[][] targets;
+        private int[] fail;
+        private int[][] outputs;
+        private int maxKeyLength;
+
+        private Automaton(Bible bible) {
+            Set<String> words = new LinkedHashSet<>();
+            if (bible != null && bible.getBooks() != null) {
+                for (Object o : bible.getBooks()) {
+                    Book book = (Book) o;
+                    if (book != null) {
+                        addKey(words, book.getName());
+                        addKey(words, book.getAbbreviation());
+                    }
+                }
+            }
+
+            //build the trie of all keys
+            List<Map<Character, Integer>> edges = new ArrayList<>();
+            List<Integer> lengths = new ArrayList<>();
+            edges.add(new HashMap<>());
+            lengths.add(0);
+            List<Integer> terminals = new ArrayList<>();
+            terminals.add(0);
+
+            for (String word : words) {
+                int node = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    Integer child = edges.get(node).get(word.charAt(i));
+                    if (child == null) {
+                        child = edges.size();
+                        edges.add(new HashMap<>());
+                        lengths.add(i + 1);
+                        terminals.add(0);
+                        edges.get(node).put(word.charAt(i), child);
+                    }
+                    node = child;
+                }
+                terminals.set(node, word.length());
+                maxKeyLength = Math.max(maxKeyLength, word.length());
+            }
+
+            int size = edges.size();
+            keys = new char[size][];
+            targets = new int[size][];
+            for (int i = 0; i < size; i++) {
+                List<Character> sorted = new ArrayList<>(edges.get(i).keySet());
+                sorted.sort(null);
+                keys[i] = new char[sorted.size()];
+                targets[i] = new int[sorted.size()];
+                for (int j = 0; j < sorted.size(); j++) {
+                    keys[i][j] = sorted.get(j);
+                    targets[i][j] = edges.get(i).get(sorted.get(j));
+                }
+            }
+
+            //breadth-first, link every state to the longest proper suffix which is also in the trie, and gather the
+            //keys ending at each state from its own key and those of its suffix
+            fail = new int[size];
+            outputs = new int[size][];
+            outputs[0] = new int[0];
+
+            int[] queue = new int[size];
+            int head = 0;
+            int tail = 0;
+            for (int child : targets[0]) {
+                fail[child] = 0;
+                queue[tail++] = child;
+            }
+
+            while (head < tail) {
+                int node = queue[head++];
+
+                int[] inherited = outputs[fail[node]];
+                if (terminals.get(node) > 0) {
+                    outputs[node] = new int[inherited.length + 1];
+                    outputs[node][0] = terminals.get(node);
+                    System.arraycopy(inherited, 0, outputs[node], 1, inherited.length);
+                }
+                else {
+                    outputs[node] = inherited;
+                }
+
+                for (int j = 0; j < keys[node].length; j++) {
+                    int child = targets[node][j];
+                    fail[child] = step(fail[node], keys[node][j]);
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        private int step(int state, char ch) {
+            while (true) {
+                int i = Arrays.binarySearch(keys[state], ch);
+                if (i >= 0) {
+                    return targets[state][i];
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = fail[state];
+            }
+        }
+
+        private static void addKey(Set<String> words, String name) {
+            if (name == null) {
+                return;
+            }
+
+            String normalized = ParseCache.normalize(name);
+            StringBuilder sb = new StringBuilder(normalized.length());
+            for (int i = 0; i < normalized.length(); i++) {
+                sb.append(fold(normalized.charAt(i)));
+            }
+            if (sb.length() > 0) {
+                words.add(sb.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.eden.parser;
+
+import com.eden.bible.Reference;
+
+/**
+ * A Reference found within a larger body of text by a {@link ReferenceExtractor}, along with the position of the text
+ * it was parsed from.
+ */
+public final class ReferenceMatch {
+    private final Reference reference;
+    private final String text;
+    private final long start;
+    private final long end;
+
+    public ReferenceMatch(Reference reference, String text, long start, long end) {
+        this.reference = reference;
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the Reference that was parsed from the text.
+     *
+     * @return the parsed Reference
+     */
+    public Reference getReference() {
+        return reference;
+    }
+
+    /**
+     * Get the text that was parsed into the Reference. Runs of whitespace within the book name are collapsed to a
+     * single space.
+     *
+     * @return the matched text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the offset in the input of the first character of the match.
+     *
+     * @return the start of the match, inclusive
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Get the offset in the input just past the last character of the match.
+     *
+     * @return the end of the match, exclusive
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return reference + " [" + start + ", " + end + ")";
+    }
+}
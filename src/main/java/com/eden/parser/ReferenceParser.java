@@ -1,8 +1,14 @@
 package com.eden.parser;
 
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
 import com.eden.bible.Reference;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The class used to parse a String into Reference objects. Uses the following grammar
@@ -19,40 +25,450 @@ import java.util.ArrayList;
  * <p>
  * verseSequence ::= verse punctuation verse
  * verseList ::= { [verse | verseSequence] punctuation }
+ * <p>
+ * A list of Passages can also be parsed from one String with {@link ReferenceParser#parseList(String, Runnable)}, in
+ * which case a SEMICOLON always separates Passages. Passages after the first may leave off the book, in which case the
+ * book of the previous Passage is carried forward:
+ * <p>
+ * PassageList ::= Passage { punctuation [Passage | chapter ((punctuation) verseList)] }
+ * <p>
+ * The parser never throws on bad input. Instead, it remembers the first problem it finds and where in the input it
+ * was found, which can be read with {@link ReferenceParser#getErrorKind()} and
+ * {@link ReferenceParser#getErrorPosition()}. By default the parser is lenient, and skips past whatever it can to
+ * find a Reference in the input. In strict mode, parsing stops at the first problem, and any tokens left over after a
+ * Passage are a problem as well.
  */
 // TODO: Add support for parsing a Bible out of the reference, e.g. John 3:16 (ESV)
 public class ReferenceParser {
+    private static final ThreadLocal<Reference.Builder> bulkBuilders = ThreadLocal.withInitial(Reference.Builder::new);
+
     private Reference.Builder builder;
 
     private TokenStream ts;
 
+    private boolean parsingList;
+
+    private boolean strict;
+
+    private ParseResult.ErrorKind errorKind = ParseResult.ErrorKind.NONE;
+
+    private int errorPosition = -1;
+
+    private boolean incremental;
+
+    private boolean compiled;
+
+    private Bible compiledBible;
+
+    private CompiledReferenceParser compiledParser;
+
+    private String bookName;
+
+    private boolean parsedChapter;
+
+    private Bible resolvedBible;
+
+    private String resolvedBookName;
+
+    private Book resolvedBook;
+
     public ReferenceParser(Reference.Builder builder) {
         this.builder = builder;
     }
 
+    public boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * Set whether this parser stops at the first problem in its input, or skips past problems that it can recover
+     * from.
+     *
+     * @param strict true to stop parsing at the first problem
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Set whether this parser expects each input to be an edit of the one before it, such as text being typed into a
+     * search box. An incremental parser only lexes its input again from the first character that changed since the
+     * last parse, and remembers the Book it found for the last book name so it does not need to look it up again.
+     * <p>
+     * The remembered Book is forgotten whenever incremental parsing is turned off, so do that if the Books in the
+     * Bible are changed.
+     *
+     * @param incremental true to parse each input as an edit of the one before it
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            forgetResolvedBook();
+        }
+    }
+
+    /**
+     * Forget everything remembered from previous parses: the tokens of the last input, the Book found for the last
+     * book name, the compiled parser, and the result of the last parse. Whether the parser is strict, incremental or
+     * compiled is kept, so the next parse starts from scratch but works the same way.
+     */
+    public void clear() {
+        ts = null;
+        forgetResolvedBook();
+        compiledBible = null;
+        compiledParser = null;
+        clearError();
+    }
+
+    private void forgetResolvedBook() {
+        resolvedBible = null;
+        resolvedBookName = null;
+        resolvedBook = null;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Set whether this parser first tries the {@link CompiledReferenceParser} for the Builder's Bible, which
+     * recognizes the most common forms of a reference much faster. Input that it does not recognize is parsed as
+     * usual, so the results are the same either way. This has no effect on incremental parsing.
+     *
+     * @param compiled true to try the compiled parser first
+     */
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        if (!compiled) {
+            compiledBible = null;
+            compiledParser = null;
+        }
+    }
+
+    /**
+     * Get the book name found during the last parse, as it was given to the Bible to look up. If the input was
+     * recognized by the compiled parser, this is the name of the Book that was found instead.
+     *
+     * @return the name of the book, which is empty if the input did not start with one
+     */
+    public String getBookName() {
+        return bookName;
+    }
+
+    /**
+     * Whether a chapter was found during the last parse.
+     *
+     * @return true if the book was followed by a chapter
+     */
+    public boolean hasParsedChapter() {
+        return parsedChapter;
+    }
+
+    /**
+     * Get the first problem found during the last parse.
+     *
+     * @return the kind of the first problem found, or NONE
+     */
+    public ParseResult.ErrorKind getErrorKind() {
+        return errorKind;
+    }
+
+    /**
+     * Get the character position in the input of the first problem found during the last parse.
+     *
+     * @return the position of the first problem found, or -1 if there were none
+     */
+    public int getErrorPosition() {
+        return errorPosition;
+    }
+
+    /**
+     * Parse every String in a Stream into a Reference, spreading the work across the common ForkJoinPool.
+     *
+     * @param references the Strings to parse
+     * @param bible      the Bible to match Book names against
+     * @return a result for every input, in the same order as the input
+     * @see ReferenceParser#parseAll(Stream, Bible, ForkJoinPool)
+     */
+    public static List<ParseResult> parseAll(Stream<String> references, Bible bible) {
+        return references
+                .parallel()
+                .map(reference -> parseOne(reference, bible))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Parse every String in a Stream into a Reference, spreading the work across the given ForkJoinPool. Each worker
+     * thread reuses a single Builder, parser, and TokenStream for all the items it parses, rather than creating new
+     * ones for each String. Results are returned in the encounter order of the Stream, and whether each item was
+     * parsed successfully can be checked with {@link ParseResult#isSuccess()}.
+     *
+     * @param references the Strings to parse
+     * @param bible      the Bible to match Book names against
+     * @param pool       the pool to do the parsing on
+     * @return a result for every input, in the same order as the input
+     */
+    public static List<ParseResult> parseAll(Stream<String> references, Bible bible, ForkJoinPool pool) {
+        return pool.submit(() -> parseAll(references, bible)).join();
+    }
+
+    private static ParseResult parseOne(String reference, Bible bible) {
+        Reference.Builder builder = bulkBuilders.get();
+        builder.setBible(bible);
+
+        try {
+            return builder.tryParseReference(reference);
+        }
+        finally {
+            //the Builder outlives this call on every worker thread, so it must not keep the Bible or its Books alive
+            builder.reset();
+        }
+    }
+
     //Passage ::= book (punctuation) chapter ((punctuation) verseList)
     public Reference.Builder parse(String reference) {
-        return parse(new TokenStream(reference));
+        if (compiled && !incremental && parseCompiled(reference)) {
+            return builder;
+        }
+
+        if (ts == null) {
+            ts = new TokenStream(reference);
+        }
+        return parse(incremental ? ts.update(reference) : ts.reset(reference));
+    }
+
+    private boolean parseCompiled(String reference) {
+        Bible bible = builder.getBible();
+        if (bible == null) {
+            return false;
+        }
+
+        if (compiledParser == null || compiledBible != bible || !compiledParser.isCompiledFrom(bible)) {
+            compiledParser = CompiledReferenceParser.forBible(bible);
+            compiledBible = bible;
+        }
+
+        if (!compiledParser.parse(reference, builder)) {
+            return false;
+        }
+
+        clearError();
+        bookName = builder.getBook().getName();
+        parsedChapter = true;
+        return true;
     }
 
     private Reference.Builder parse(TokenStream reference) {
         ts = reference;
+        clearError();
 
+        Token a = next();
+        if (a == null) {
+            error(ParseResult.ErrorKind.EMPTY_INPUT, 0);
+        }
+        ts.unget(a);
+
+        passage();
+
+        //a strict parse must consume the entire input
+        if (strict && !aborted()) {
+            Token t = next();
+            if (t != null) {
+                error(ParseResult.ErrorKind.UNEXPECTED_TOKEN, t.getStart());
+            }
+        }
+
+        return builder;
+    }
+
+    /**
+     * Parse a String containing any number of Passages, such as "John 3:16; 4:2; Rom 8:28-30", in a single pass over
+     * its tokens. Each Passage is parsed into the Builder in turn, and onPassage is called once after each Passage has
+     * been parsed, so that the Builder's state can be used to create a Reference before it gets overwritten by the next
+     * Passage. Only the chapter and verses are overwritten by a Passage that does not name its own book.
+     * <p>
+     * After a SEMICOLON, a lone number is taken to be a chapter, so "Psalm 23; 24" is two full chapters. A number
+     * followed by a COLON always starts a new chapter, so "John 3:16, 4:2" is also two Passages.
+     *
+     * @param reference the String to parse
+     * @param onPassage called after each Passage has been parsed into the Builder
+     */
+    //PassageList ::= Passage { punctuation [Passage | chapter ((punctuation) verseList)] }
+    public void parseList(String reference, Runnable onPassage) {
+        ts = (ts != null) ? ts.reset(reference) : new TokenStream(reference);
+        parsingList = true;
+        clearError();
+
+        try {
+            passage();
+            onPassage.run();
+
+            while (true) {
+                if (aborted()) {
+                    break;
+                }
+
+                Token separator = next();
+                if (separator == null || !separator.isPunctuation()) {
+                    break;
+                }
+
+                Token a = next();
+                if (a == null) {
+                    break;
+                }
+                ts.unget(a);
+
+                if (startsBook()) {
+                    passage();
+                }
+                else if (a.equals(Token.Type.NUMBER)) {
+                    chapterAndVerses();
+                }
+                else {
+                    break;
+                }
+
+                onPassage.run();
+            }
+        }
+        finally {
+            parsingList = false;
+        }
+    }
+
+    //Passage ::= book (punctuation) chapter ((punctuation) verseList)
+    private void passage() {
         book();
         punctuation();
+        chapterAndVerses();
+    }
+
+    private void chapterAndVerses() {
         chapter();
-        punctuation();
-        verseList();
+        boolean separated = punctuation();
+        verseList(separated);
+    }
 
-        return builder;
+    private void clearError() {
+        errorKind = ParseResult.ErrorKind.NONE;
+        errorPosition = -1;
+        bookName = "";
+        parsedChapter = false;
+    }
+
+    /**
+     * Remember a problem found in the input, unless one has already been found.
+     *
+     * @param kind     the kind of problem
+     * @param position the position in the input where it was found
+     */
+    private void error(ParseResult.ErrorKind kind, int position) {
+        if (errorKind == ParseResult.ErrorKind.NONE) {
+            errorKind = kind;
+            errorPosition = position;
+        }
+    }
+
+    /**
+     * Whether a strict parse has found a problem, and so should not look at any more tokens.
+     *
+     * @return true if parsing should stop
+     */
+    private boolean aborted() {
+        return strict && errorKind != ParseResult.ErrorKind.NONE;
+    }
+
+    /**
+     * Get the next token, noting if the lexer had to stop at a number which was too large.
+     *
+     * @return the next token, or null at the end of the input
+     */
+    private Token next() {
+        Token a = ts.get();
+        if (a == null && ts.getOverflowPosition() != -1) {
+            error(ParseResult.ErrorKind.NUMBER_OVERFLOW, ts.getOverflowPosition());
+        }
+        return a;
+    }
+
+    private int position(Token t) {
+        return (t != null) ? t.getStart() : ts.length();
+    }
+
+    private boolean isVerseOutOfRange(int verse) {
+        int verseCount = builder.getBook().numVersesInChapter(builder.getChapter());
+        return verse < 1 || (verseCount != -1 && verse > verseCount);
+    }
+
+    /**
+     * Look ahead to see if the next tokens are the start of a book, without consuming them.
+     *
+     * @return true if the next tokens are a word, or a number between 1 and 3 followed by a word
+     */
+    private boolean startsBook() {
+        Token a = next();
+        boolean isBook = false;
+
+        if (a != null && a.equals(Token.Type.WORD) && !a.isPunctuationWord()) {
+            isBook = true;
+        }
+        else if (a != null && a.equals(Token.Type.NUMBER) && a.getIntValue() <= 3 && a.getIntValue() > 0) {
+            Token b = next();
+            isBook = (b != null && b.equals(Token.Type.WORD) && !b.isPunctuationWord());
+            ts.unget(b);
+        }
+
+        ts.unget(a);
+        return isBook;
+    }
+
+    /**
+     * When parsing a list of Passages, look ahead to see if the next tokens end the current verseList and start another
+     * Passage, without consuming them.
+     *
+     * @return true if the next tokens are a SEMICOLON, or punctuation followed by a new book or chapter
+     */
+    private boolean startsNextPassage() {
+        Token separator = next();
+        boolean startsPassage = false;
+
+        if (separator != null && separator.equals(Token.Type.SEMICOLON)) {
+            startsPassage = true;
+        }
+        else if (separator != null && separator.isPunctuation()) {
+            if (startsBook()) {
+                startsPassage = true;
+            }
+            else {
+                Token a = next();
+                if (a != null && a.equals(Token.Type.NUMBER)) {
+                    Token b = next();
+                    startsPassage = (b != null && b.equals(Token.Type.COLON));
+                    ts.unget(b);
+                }
+                ts.unget(a);
+            }
+        }
+
+        ts.unget(separator);
+        return startsPassage;
     }
 
     //punctuation ::= [;:,.-\/]
     private boolean punctuation() {
-        Token a = ts.get();
+        if (aborted()) {
+            return false;
+        }
 
-        //if token is punctuation, either character or word
-        if (a != null && a.isPunctuation()) {
+        Token a = next();
+
+        //if token is punctuation, either character or word. A semicolon is kept to separate passages in a list
+        if (a != null && a.isPunctuation() && !(parsingList && a.equals(Token.Type.SEMICOLON))) {
             return true;
         }
         else {
@@ -63,7 +479,11 @@ public class ReferenceParser {
 
     //book ::= ([123]) word+
     private void book() {
-        Token a = ts.get();
+        if (aborted()) {
+            return;
+        }
+
+        Token a = next();
         boolean includesNumber;
 
         //optional number between 1 and 3
@@ -81,7 +501,7 @@ public class ReferenceParser {
         ArrayList<Token> tokens = new ArrayList<>();
 
         while (true) {
-            Token t = ts.get();
+            Token t = next();
             if (t != null && t.equals(Token.Type.WORD)) {
                 tokens.add(t);
                 continue;
@@ -92,25 +512,74 @@ public class ReferenceParser {
             }
         }
 
-        String bookName = (includesNumber) ? a.getIntValue() + " " : "";
+        if (tokens.isEmpty()) {
+            Token t = next();
+            ts.unget(t);
+            error(ParseResult.ErrorKind.MISSING_BOOK, position(t));
+            if (strict) {
+                return;
+            }
+        }
+
+        StringBuilder bookName = new StringBuilder();
+        if (includesNumber) {
+            bookName.append(a.getIntValue());
+        }
 
         for (Token t : tokens) {
-            bookName += t.getStringValue() + " ";
+            if (bookName.length() > 0) {
+                bookName.append(' ');
+            }
+            t.appendTo(bookName);
         }
 
-        bookName = bookName.trim();
+        this.bookName = bookName.toString().trim();
+        resolveBook();
+
+        if (!tokens.isEmpty() && builder.checkFlag(Reference.Builder.DEFAULT_BOOK_FLAG)) {
+            error(ParseResult.ErrorKind.UNKNOWN_BOOK, includesNumber ? a.getStart() : tokens.get(0).getStart());
+        }
+    }
+
+    private void resolveBook() {
+        if (incremental && resolvedBook != null
+                && resolvedBible == builder.getBible() && bookName.equals(resolvedBookName)) {
+            builder.setBook(resolvedBook);
+            return;
+        }
 
         builder.setBook(bookName);
+
+        if (incremental && !builder.checkFlag(Reference.Builder.DEFAULT_BOOK_FLAG)) {
+            resolvedBible = builder.getBible();
+            resolvedBookName = bookName;
+            resolvedBook = builder.getBook();
+        }
     }
 
     //chapter ::= number
     private boolean chapter() {
-        Token a = ts.get();
+        if (aborted()) {
+            return false;
+        }
+
+        Token a = next();
         if (a != null && a.equals(Token.Type.NUMBER) && a.getIntValue() > 0) {
             builder.setChapter(a.getIntValue());
+            parsedChapter = true;
+            if (builder.checkFlag(Reference.Builder.DEFAULT_CHAPTER_FLAG)) {
+                error(ParseResult.ErrorKind.INVALID_CHAPTER, a.getStart());
+            }
             return true;
         }
         else {
+            //a book on its own is allowed, but if anything follows the book it must be a chapter
+            if (a != null && a.equals(Token.Type.NUMBER)) {
+                error(ParseResult.ErrorKind.INVALID_CHAPTER, a.getStart());
+            }
+            else if (a != null) {
+                error(ParseResult.ErrorKind.MISSING_CHAPTER, a.getStart());
+            }
             ts.unget(a);
             return false;
         }
@@ -118,12 +587,22 @@ public class ReferenceParser {
 
     //verse ::= number
     private boolean verse() {
-        Token a = ts.get();
+        if (aborted()) {
+            return false;
+        }
+
+        Token a = next();
         if (a != null && a.equals(Token.Type.NUMBER) && a.getIntValue() > 0) {
+            if (isVerseOutOfRange(a.getIntValue())) {
+                error(ParseResult.ErrorKind.INVALID_VERSE, a.getStart());
+            }
             builder.addVerse(a.getIntValue());
             return true;
         }
         else {
+            if (a != null && a.equals(Token.Type.NUMBER)) {
+                error(ParseResult.ErrorKind.INVALID_VERSE, a.getStart());
+            }
             ts.unget(a);
             return false;
         }
@@ -131,21 +610,29 @@ public class ReferenceParser {
 
     //verseSequence ::= number dash number
     private boolean verseSequence() {
-        Token a = ts.get();
+        if (aborted()) {
+            return false;
+        }
+
+        Token a = next();
         if (a != null && a.equals(Token.Type.NUMBER) && a.getIntValue() > 0) {
             int numA = a.getIntValue();
 
-            Token dash = ts.get();
-            if (dash != null &&
-                    (dash.equals(Token.Type.DASH) || Token.getTokenFromWord(dash.getStringValue()).equals(Token.Type.DASH))) {
+            Token dash = next();
+            if (dash != null && dash.is(Token.Type.DASH)) {
 
-                Token b = ts.get();
+                Token b = next();
                 if (b != null && b.equals(Token.Type.NUMBER) && b.getIntValue() > 0) {
                     int numB = b.getIntValue();
 
-                    for (int i = numA; i <= numB; i++) {
-                        builder.addVerse(i);
+                    if (isVerseOutOfRange(numA)) {
+                        error(ParseResult.ErrorKind.INVALID_VERSE, a.getStart());
+                    }
+                    else if (numB < numA || isVerseOutOfRange(numB)) {
+                        error(ParseResult.ErrorKind.INVALID_VERSE, b.getStart());
                     }
+
+                    builder.addRange(numA, numB);
                     return true;
                 }
                 else {
@@ -168,17 +655,28 @@ public class ReferenceParser {
     }
 
     //verseList ::= { [verse | verseSequence] comma }
-    private void verseList() {
+    private void verseList(boolean afterPunctuation) {
         while (true) {
             if (!verseSequence()) {
                 if (!verse()) {
+                    //in a strict parse, punctuation after the chapter or a verse must be followed by another verse
+                    if (strict && afterPunctuation) {
+                        Token t = next();
+                        ts.unget(t);
+                        error(ParseResult.ErrorKind.INVALID_VERSE, position(t));
+                    }
                     return;
                 }
             }
 
+            if (parsingList && startsNextPassage()) {
+                return;
+            }
+
             if (!punctuation()) {
                 return;
             }
+            afterPunctuation = true;
         }
     }
 }
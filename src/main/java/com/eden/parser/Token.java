@@ -1,5 +1,10 @@
 package com.eden.parser;
 
+/**
+ * A single lexical unit produced by a {@link TokenStream}. Tokens read from a stream do not copy the characters they
+ * were lexed from; instead they record their type, the [start, end) span within the source and, for NUMBER tokens,
+ * the parsed integer value. The String value of a WORD is only built if it is actually asked for.
+ */
 public class Token {
     public enum Type {
         WORD,
@@ -18,6 +23,10 @@ public class Token {
     private String stringValue;
     private int intValue;
 
+    private CharSequence source;
+    private int start;
+    private int end;
+
     Token(Type type) {
         this.type = type;
     }
@@ -32,10 +41,63 @@ public class Token {
         this.intValue = value;
     }
 
-    String getStringValue() { return stringValue; }
+    Token(Type type, CharSequence source, int start, int end, int value) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.intValue = value;
+    }
+
+    Type getType() { return type; }
+
+    /**
+     * Get the index in the source of the first character of this Token.
+     *
+     * @return the start of this Token, inclusive
+     */
+    public int getStart() { return start; }
+
+    /**
+     * Get the index in the source just past the last character of this Token.
+     *
+     * @return the end of this Token, exclusive
+     */
+    public int getEnd() { return end; }
+
+    String getStringValue() {
+        if (stringValue == null && source != null && type == Type.WORD) {
+            StringBuilder sb = new StringBuilder(end - start);
+            appendTo(sb);
+            stringValue = sb.toString();
+        }
+        return stringValue;
+    }
 
     int getIntValue() { return intValue; }
 
+    /**
+     * Append the word characters of this Token to a StringBuilder, without creating an intermediate String. Any
+     * non-word characters that made it into the token during lexing are skipped.
+     *
+     * @param sb the StringBuilder to append to
+     */
+    void appendTo(StringBuilder sb) {
+        if (source == null) {
+            if (stringValue != null) {
+                sb.append(stringValue);
+            }
+            return;
+        }
+
+        for (int i = start; i < end; i++) {
+            char ch = source.charAt(i);
+            if (isWordCharacter(ch)) {
+                sb.append(ch);
+            }
+        }
+    }
+
     public boolean equals(Type type) { return this.type == type; }
 
     boolean isPunctuation() {
@@ -43,17 +105,79 @@ public class Token {
     }
 
     boolean isPunctuationCharacter() {
-        return this.equals(Token.Type.COLON) ||
-                this.equals(Token.Type.SEMICOLON) ||
-                this.equals(Token.Type.COMMA) ||
-                this.equals(Token.Type.DOT) ||
-                this.equals(Token.Type.DASH) ||
-                this.equals(Token.Type.SLASH) ||
-                this.equals(Token.Type.BACKSLASH);
+        return isPunctuationCharacter(this.type);
     }
 
     boolean isPunctuationWord() {
-        return this.equals(Token.Type.WORD) && getTokenFromWord(getStringValue()).isPunctuationCharacter();
+        return this.equals(Token.Type.WORD) && isPunctuationCharacter(getWordType());
+    }
+
+    /**
+     * Check whether this token is of the given type, or is a word that stands in for that type, such as 'through'
+     * standing in for a DASH.
+     *
+     * @param type the type to check against
+     * @return true if this token is or means the given type
+     */
+    boolean is(Type type) {
+        return this.type == type || (this.type == Type.WORD && getWordType() == type);
+    }
+
+    /**
+     * Get the type of punctuation this word represents, or WORD if it is just a regular word. Does the same job as
+     * {@link Token#getTokenFromWord(String)} but compares against the source directly.
+     *
+     * @return the Type of punctuation this word represents
+     */
+    Type getWordType() {
+        if (wordEqualsIgnoreCase("and")) {
+            return Type.COMMA;
+        }
+        else if (wordEqualsIgnoreCase("through") || wordEqualsIgnoreCase("to")) {
+            return Type.DASH;
+        }
+
+        return Type.WORD;
+    }
+
+    private boolean wordEqualsIgnoreCase(String word) {
+        if (source == null) {
+            return word.equalsIgnoreCase(stringValue);
+        }
+
+        int j = 0;
+        for (int i = start; i < end; i++) {
+            char ch = source.charAt(i);
+            if (!isWordCharacter(ch)) {
+                continue;
+            }
+            if (j >= word.length() || Character.toLowerCase(ch) != word.charAt(j)) {
+                return false;
+            }
+            j++;
+        }
+
+        return j == word.length();
+    }
+
+    /**
+     * Whether a character is kept in the value of a WORD. Matches the regex class \w.
+     *
+     * @param ch the character to check
+     * @return true if the character is a letter, digit, or underscore in the ASCII range
+     */
+    static boolean isWordCharacter(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+    }
+
+    static boolean isPunctuationCharacter(Type type) {
+        return type == Token.Type.COLON ||
+                type == Token.Type.SEMICOLON ||
+                type == Token.Type.COMMA ||
+                type == Token.Type.DOT ||
+                type == Token.Type.DASH ||
+                type == Token.Type.SLASH ||
+                type == Token.Type.BACKSLASH;
     }
 
     static Token getTokenFromWord(String word) {
@@ -1,99 +1,245 @@
 package com.eden.parser;
 
-import java.util.LinkedList;
-import java.util.Stack;
+import java.util.ArrayList;
 
+/**
+ * Lexes a CharSequence into Tokens on demand. The input is scanned in place by moving a cursor over it, so no
+ * characters are copied or boxed while lexing: each Token only records its type, its [start, end) span within the
+ * input, and its value if it is a NUMBER.
+ * <p>
+ * Tokens which have been read can be pushed back onto the stream with {@link TokenStream#unget(Token)}, and will be
+ * returned by subsequent calls to {@link TokenStream#get()} in last-in-first-out order before any more input is lexed.
+ * A TokenStream can be pointed at new input with {@link TokenStream#reset(CharSequence)} so that it may be reused.
+ * <p>
+ * When the new input is an edit of the old one, such as text being typed into a search box, it can instead be given
+ * to {@link TokenStream#update(CharSequence)}. The stream then keeps every Token it has lexed, and on the next update
+ * only lexes again from the first character that changed, replaying the kept Tokens before that point.
+ */
 public class TokenStream {
-    LinkedList<Character> chars;
-    Stack<Token> ungetTokens;
-
-    public TokenStream(String expression) {
-        String toParse = expression.replaceAll("\\s+", "~");
-        chars = new LinkedList<>();
-        for (int i = 0; i < toParse.length(); i++) {
-            chars.add(toParse.charAt(i));
+    CharSequence input;
+    int cursor;
+    ArrayList<Token> ungetTokens;
+    int overflowPosition;
+    ArrayList<Token> lexedTokens;
+    int replayIndex;
+
+    public TokenStream(CharSequence expression) {
+        ungetTokens = new ArrayList<>();
+        reset(expression);
+    }
+
+    /**
+     * Clear any state in this stream and start lexing a new input from its beginning.
+     *
+     * @param expression the new input to lex
+     * @return this TokenStream, for chaining
+     */
+    public TokenStream reset(CharSequence expression) {
+        this.input = (expression != null) ? expression : "";
+        this.cursor = 0;
+        this.ungetTokens.clear();
+        this.overflowPosition = -1;
+        this.lexedTokens = null;
+        this.replayIndex = 0;
+        return this;
+    }
+
+    /**
+     * Point this stream at an edited version of its current input and start reading it from its beginning. Tokens
+     * lexed from the part of the old input that is the same in the new input are kept and replayed, and only the rest
+     * of the new input is lexed again. Since kept Tokens still refer to the old input, neither input may be changed
+     * after it has been given to this stream.
+     *
+     * @param expression the edited input to lex
+     * @return this TokenStream, for chaining
+     */
+    public TokenStream update(CharSequence expression) {
+        CharSequence previous = this.input;
+        CharSequence next = (expression != null) ? expression : "";
+
+        int common = 0;
+        int max = Math.min(previous.length(), next.length());
+        while (common < max && previous.charAt(common) == next.charAt(common)) {
+            common++;
         }
-        ungetTokens = new Stack<>();
+
+        //a number which overflowed was never turned into a Token, so it must be lexed again to be noticed again
+        if (overflowPosition != -1) {
+            common = Math.min(common, overflowPosition);
+        }
+
+        if (lexedTokens == null) {
+            lexedTokens = new ArrayList<>();
+        }
+
+        //a Token which ends at the first change may continue into the changed text, so it must be lexed again
+        int kept = 0;
+        while (kept < lexedTokens.size() && lexedTokens.get(kept).getEnd() < common) {
+            kept++;
+        }
+        lexedTokens.subList(kept, lexedTokens.size()).clear();
+
+        this.input = next;
+        this.cursor = (kept > 0) ? lexedTokens.get(kept - 1).getEnd() : 0;
+        this.ungetTokens.clear();
+        this.overflowPosition = -1;
+        this.replayIndex = 0;
+        return this;
+    }
+
+    /**
+     * Get the length of the input being lexed.
+     *
+     * @return the number of characters in the input
+     */
+    public int length() {
+        return input.length();
+    }
+
+    /**
+     * Get the position of the first number in the input which was too large to be lexed, if any have been found.
+     *
+     * @return the start of the first number which overflowed, or -1 if none have
+     */
+    public int getOverflowPosition() {
+        return overflowPosition;
+    }
+
+    /**
+     * Get the index of the next character in the input which has not yet been lexed. Tokens which have been put back
+     * with unget() do not move the cursor.
+     *
+     * @return the current position of the cursor
+     */
+    public int position() {
+        return cursor;
     }
 
     public Token get() {
-        try {
-            if (ungetTokens.size() > 0) {
-                return ungetTokens.pop();
-            }
-            else if (chars.size() > 0) {
-                char ch = chars.removeFirst();
-                String s;
-
-                switch (ch) {
-                    case '~':
-                        return get();
-                    case ':':
-                        return new Token(Token.Type.COLON);
-                    case ';':
-                        return new Token(Token.Type.SEMICOLON);
-                    case ',':
-                        return new Token(Token.Type.COMMA);
-                    case '-':
-                        return new Token(Token.Type.DASH);
-                    case '.':
-                        return new Token(Token.Type.DOT);
-                    case '/':
-                        return new Token(Token.Type.SLASH);
-                    case '\\':
-                        return new Token(Token.Type.BACKSLASH);
-                    case '0':
-                    case '1':
-                    case '2':
-                    case '3':
-                    case '4':
-                    case '5':
-                    case '6':
-                    case '7':
-                    case '8':
-                    case '9':
-                        s = "";
-                        s += ch;
-                        while (chars.size() > 0 && chars.getFirst() != null &&
-                                Character.isDigit(chars.getFirst())) {
-                            s += chars.removeFirst();
-                        }
-                        return new Token(Token.Type.NUMBER, Integer.parseInt(s));
-                    default:
-                        s = "";
-                        s += ch;
-                        while (chars.size() > 0 && chars.getFirst() != null &&
-                                Character.isLetter(chars.getFirst())) {
-                            s += chars.removeFirst();
-                        }
-
-                        //we have our word, but we need to ensure we have removed all
-                        // nonword characters that may have gotten through the above lexing cases
-                        s = s.replaceAll("\\W", "");
-
-                        return new Token(Token.Type.WORD, s);
-                }
-            }
-            else {
-                return null;
-            }
+        if (ungetTokens.size() > 0) {
+            return ungetTokens.remove(ungetTokens.size() - 1);
+        }
+
+        if (lexedTokens == null) {
+            return lex();
         }
-        catch (Exception e) {
-            e.printStackTrace();
+
+        if (replayIndex < lexedTokens.size()) {
+            return lexedTokens.get(replayIndex++);
+        }
+
+        Token token = lex();
+        if (token != null) {
+            lexedTokens.add(token);
+            replayIndex++;
+        }
+        return token;
+    }
+
+    private Token lex() {
+        skipWhitespace();
+
+        if (cursor >= input.length()) {
             return null;
         }
+
+        int start = cursor;
+        char ch = input.charAt(cursor++);
+
+        switch (ch) {
+            case ':':
+                return new Token(Token.Type.COLON, input, start, cursor, 0);
+            case ';':
+                return new Token(Token.Type.SEMICOLON, input, start, cursor, 0);
+            case ',':
+                return new Token(Token.Type.COMMA, input, start, cursor, 0);
+            case '-':
+                return new Token(Token.Type.DASH, input, start, cursor, 0);
+            case '.':
+                return new Token(Token.Type.DOT, input, start, cursor, 0);
+            case '/':
+                return new Token(Token.Type.SLASH, input, start, cursor, 0);
+            case '\\':
+                return new Token(Token.Type.BACKSLASH, input, start, cursor, 0);
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                long value = ch - '0';
+                boolean overflow = false;
+                while (cursor < input.length() && Character.isDigit(input.charAt(cursor))) {
+                    value = value * 10 + Character.digit(input.charAt(cursor), 10);
+                    if (value > Integer.MAX_VALUE) {
+                        overflow = true;
+                        value = Integer.MAX_VALUE;
+                    }
+                    cursor++;
+                }
+
+                //a number too large to be a chapter or verse cannot be lexed, but remember where it was
+                if (overflow) {
+                    if (overflowPosition == -1) {
+                        overflowPosition = start;
+                    }
+                    return null;
+                }
+
+                return new Token(Token.Type.NUMBER, input, start, cursor, (int) value);
+            default:
+                while (cursor < input.length() && Character.isLetter(input.charAt(cursor))) {
+                    cursor++;
+                }
+
+                //the span may include nonword characters that got through the above lexing cases, but those
+                //are skipped when the value of the word is read
+                return new Token(Token.Type.WORD, input, start, cursor, 0);
+        }
     }
 
     public void unget(Token token) {
-        ungetTokens.push(token);
+        ungetTokens.add(token);
+    }
+
+    private void skipWhitespace() {
+        while (cursor < input.length() && isWhitespace(input.charAt(cursor))) {
+            cursor++;
+        }
+    }
+
+    /**
+     * Whether a character separates tokens. Matches the regex class \s, plus the '~' character which has always been
+     * treated as whitespace by this lexer.
+     *
+     * @param ch the character to check
+     * @return true if the character is whitespace
+     */
+    static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r' || ch == '~';
     }
 
     @Override
     public String toString() {
-        String s = "";
-        for (int i = 0; i < chars.size(); i++) {
-            s += chars.get(i);
+        StringBuilder sb = new StringBuilder(input.length() - cursor);
+        boolean lastWasWhitespace = false;
+        for (int i = cursor; i < input.length(); i++) {
+            char ch = input.charAt(i);
+            if (isWhitespace(ch)) {
+                if (!lastWasWhitespace) {
+                    sb.append('~');
+                }
+                lastWasWhitespace = true;
+            }
+            else {
+                sb.append(ch);
+                lastWasWhitespace = false;
+            }
         }
-        return s;
+        return sb.toString();
     }
 }
@@ -0,0 +1,112 @@
+package com.eden.serializers;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams Bibles to and from JSON as an object with the Bible's id, name, abbreviation, language and copyright, and
+ * its list of Books. Any Bible can be written, but only a Bible class with a no-argument constructor can be read.
+ *
+ * @param <T> the type of Bible
+ */
+public final class BibleTypeAdapter<T extends Bible> extends TypeAdapter<T> {
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    private final TypeAdapter<Book> bookAdapter;
+
+    /**
+     * Create an adapter for the given type of Bible.
+     *
+     * @param type        the class of the Bibles to read and write
+     * @param bookAdapter the adapter for the Books in those Bibles
+     */
+    public BibleTypeAdapter(Class<T> type, TypeAdapter<Book> bookAdapter) {
+        this.type = type;
+        this.constructor = EdenTypeAdapterFactory.findConstructor(type);
+        this.bookAdapter = bookAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, T bible) throws IOException {
+        if (bible == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("id").value(bible.getId());
+        out.name("name").value(bible.getName());
+        out.name("abbreviation").value(bible.getAbbreviation());
+        out.name("language").value(bible.getLanguage());
+        out.name("copyright").value(bible.getCopyright());
+
+        out.name("books");
+        out.beginArray();
+        if (bible.getBooks() != null) {
+            for (Object book : bible.getBooks()) {
+                bookAdapter.write(out, (Book) book);
+            }
+        }
+        out.endArray();
+
+        out.endObject();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        T bible = EdenTypeAdapterFactory.newInstance(type, constructor);
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            }
+            else if (name.equals("id")) {
+                bible.setId(in.nextString());
+            }
+            else if (name.equals("name")) {
+                bible.setName(in.nextString());
+            }
+            else if (name.equals("abbreviation")) {
+                bible.setAbbreviation(in.nextString());
+            }
+            else if (name.equals("language")) {
+                bible.setLanguage(in.nextString());
+            }
+            else if (name.equals("copyright")) {
+                bible.setCopyright(in.nextString());
+            }
+            else if (name.equals("books")) {
+                List<Book> books = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    books.add(bookAdapter.read(in));
+                }
+                in.endArray();
+                bible.setBooks(books);
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return bible;
+    }
+}
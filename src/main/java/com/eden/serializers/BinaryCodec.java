@@ -0,0 +1,516 @@
+package com.eden.serializers;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Metadata;
+import com.eden.bible.OrdinalIndex;
+import com.eden.bible.Reference;
+import com.eden.simple.SimpleBook;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary format for References, lists of References, and Metadata, such as for caching saved verse lists on
+ * a device or sending them between services, where JSON is too large. Everything can be written to and read from
+ * either a {@link DataOutput}/{@link DataInput} or a {@link ByteBuffer}.
+ * <p>
+ * Each value written with this codec starts with the {@link #VERSION version} of the format, so that data written by
+ * a later version can be recognized rather than misread. Numbers are written as variable-length integers of 7 bits
+ * per byte, so small numbers take a single byte. A Reference is its Book's location, its chapter, and its verses as
+ * runs of consecutive verses, where each run is the gap since the end of the previous run and its length. A typical
+ * Reference takes 4 to 6 bytes.
+ * <p>
+ * References are read into the Bible given to this codec, finding their Books by location. When there is no Bible, or
+ * it has no Book at that location, the Reference gets a {@link SimpleBook} at that location instead. Either way, a
+ * Reference that is read is equal to the one that was written.
+ * <p>
+ * Every count and length is checked as it is read, so truncated or corrupt data causes an IOException rather than a
+ * huge allocation or a long loop over verses that cannot exist.
+ */
+public final class BinaryCodec {
+    /**
+     * The version of the format written by this codec.
+     */
+    public static final int VERSION = 1;
+
+    //no chapter in any Bible comes close to this many verses, so a verse beyond it can only come from corrupt data
+    private static final int MAX_VERSE = 0xFFFF;
+
+    //lists and strings are only given this much room up front, and grow as their contents are actually read
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int TYPE_BYTE = 1;
+    private static final int TYPE_SHORT = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_DOUBLE = 6;
+    private static final int TYPE_BOOLEAN = 7;
+    private static final int TYPE_CHAR = 8;
+    private static final int TYPE_STRING = 9;
+
+    private final Bible bible;
+
+    /**
+     * Create a codec which reads References without a Bible.
+     */
+    public BinaryCodec() {
+        this(null);
+    }
+
+    /**
+     * Create a codec which reads References into the given Bible.
+     *
+     * @param bible the Bible to find the Books of References in, or null
+     */
+    public BinaryCodec(Bible bible) {
+        this.bible = bible;
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+//Reference
+//--------------------------------------------------------------------------------------------------
+
+    public void writeReference(DataOutput out, Reference reference) throws IOException {
+        writeReference(out::writeByte, reference);
+    }
+
+    public void writeReference(ByteBuffer out, Reference reference) throws IOException {
+        writeReference(b -> out.put((byte) b), reference);
+    }
+
+    public Reference readReference(DataInput in) throws IOException {
+        return readReference(in::readUnsignedByte);
+    }
+
+    public Reference readReference(ByteBuffer in) throws IOException {
+        return readReference(source(in));
+    }
+
+    private void writeReference(ByteSink out, Reference reference) throws IOException {
+        writeVarint(out, VERSION);
+        writeReferenceBody(out, reference);
+    }
+
+    private Reference readReference(ByteSource in) throws IOException {
+        readVersion(in);
+        return readReferenceBody(in);
+    }
+
+//List of References
+//--------------------------------------------------------------------------------------------------
+
+    public void writeReferences(DataOutput out, Collection<Reference> references) throws IOException {
+        writeReferences(out::writeByte, references);
+    }
+
+    public void writeReferences(ByteBuffer out, Collection<Reference> references) throws IOException {
+        writeReferences(b -> out.put((byte) b), references);
+    }
+
+    public List<Reference> readReferences(DataInput in) throws IOException {
+        return readReferences(in::readUnsignedByte);
+    }
+
+    public List<Reference> readReferences(ByteBuffer in) throws IOException {
+        return readReferences(source(in));
+    }
+
+    private void writeReferences(ByteSink out, Collection<Reference> references) throws IOException {
+        writeVarint(out, VERSION);
+        writeVarint(out, references.size());
+        for (Reference reference : references) {
+            writeReferenceBody(out, reference);
+        }
+    }
+
+    private List<Reference> readReferences(ByteSource in) throws IOException {
+        readVersion(in);
+        int count = readCount(in, "References");
+        List<Reference> references = new ArrayList<>(Math.min(count, INITIAL_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            references.add(readReferenceBody(in));
+        }
+        return references;
+    }
+
+//Metadata
+//--------------------------------------------------------------------------------------------------
+
+    /**
+     * Write Metadata. Like {@link MetadataTypeAdapter}, only values of the types with convenience methods in Metadata
+     * are written, and values of any other type are left out.
+     *
+     * @param out      the output to write to
+     * @param metadata the Metadata to write
+     * @throws IOException if the output cannot be written to
+     */
+    public void writeMetadata(DataOutput out, Metadata metadata) throws IOException {
+        writeMetadata(out::writeByte, metadata);
+    }
+
+    /**
+     * Write Metadata. Like {@link MetadataTypeAdapter}, only values of the types with convenience methods in Metadata
+     * are written, and values of any other type are left out.
+     *
+     * @param out      the buffer to write to
+     * @param metadata the Metadata to write
+     * @throws IOException never, but for consistency with writing to a DataOutput
+     */
+    public void writeMetadata(ByteBuffer out, Metadata metadata) throws IOException {
+        writeMetadata(b -> out.put((byte) b), metadata);
+    }
+
+    public Metadata readMetadata(DataInput in) throws IOException {
+        return readMetadata(in::readUnsignedByte);
+    }
+
+    public Metadata readMetadata(ByteBuffer in) throws IOException {
+        return readMetadata(source(in));
+    }
+
+    private void writeMetadata(ByteSink out, Metadata metadata) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (String key : metadata.getKeys()) {
+            if (typeOf(metadata.get(key)) != 0) {
+                keys.add(key);
+            }
+        }
+
+        writeVarint(out, VERSION);
+        writeVarint(out, keys.size());
+        for (String key : keys) {
+            Object value = metadata.get(key);
+            int type = typeOf(value);
+
+            writeString(out, key);
+            out.put(type);
+            switch (type) {
+                case TYPE_BYTE:
+                case TYPE_SHORT:
+                case TYPE_INT:
+                    writeVarint(out, zigzag(((Number) value).intValue()));
+                    break;
+                case TYPE_LONG:
+                    writeVarlong(out, zigzag(((Long) value).longValue()));
+                    break;
+                case TYPE_FLOAT:
+                    writeFixed(out, Float.floatToIntBits((Float) value), 4);
+                    break;
+                case TYPE_DOUBLE:
+                    writeFixed(out, Double.doubleToLongBits((Double) value), 8);
+                    break;
+                case TYPE_BOOLEAN:
+                    out.put(((Boolean) value) ? 1 : 0);
+                    break;
+                case TYPE_CHAR:
+                    writeVarint(out, (Character) value);
+                    break;
+                default:
+                    writeString(out, (String) value);
+                    break;
+            }
+        }
+    }
+
+    private Metadata readMetadata(ByteSource in) throws IOException {
+        readVersion(in);
+
+        Metadata metadata = new Metadata();
+        int count = readCount(in, "Metadata keys");
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            int type = in.get();
+            switch (type) {
+                case TYPE_BYTE:
+                    metadata.putByte(key, (byte) unzigzag(readVarint(in)));
+                    break;
+                case TYPE_SHORT:
+                    metadata.putShort(key, (short) unzigzag(readVarint(in)));
+                    break;
+                case TYPE_INT:
+                    metadata.putInt(key, unzigzag(readVarint(in)));
+                    break;
+                case TYPE_LONG:
+                    metadata.putLong(key, unzigzag(readVarlong(in)));
+                    break;
+                case TYPE_FLOAT:
+                    metadata.putFloat(key, Float.intBitsToFloat((int) readFixed(in, 4)));
+                    break;
+                case TYPE_DOUBLE:
+                    metadata.putDouble(key, Double.longBitsToDouble(readFixed(in, 8)));
+                    break;
+                case TYPE_BOOLEAN:
+                    metadata.putBoolean(key, in.get() != 0);
+                    break;
+                case TYPE_CHAR:
+                    metadata.putChar(key, (char) readVarint(in));
+                    break;
+                case TYPE_STRING:
+                    metadata.putString(key, readString(in));
+                    break;
+                default:
+                    throw new IOException("Unknown type " + type + " for Metadata key [" + key + "]");
+            }
+        }
+        return metadata;
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof Byte) {
+            return TYPE_BYTE;
+        }
+        else if (value instanceof Short) {
+            return TYPE_SHORT;
+        }
+        else if (value instanceof Integer) {
+            return TYPE_INT;
+        }
+        else if (value instanceof Long) {
+            return TYPE_LONG;
+        }
+        else if (value instanceof Float) {
+            return TYPE_FLOAT;
+        }
+        else if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        }
+        else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        }
+        else if (value instanceof Character) {
+            return TYPE_CHAR;
+        }
+        else if (value instanceof String) {
+            return TYPE_STRING;
+        }
+        else {
+            return 0;
+        }
+    }
+
+//Encoding
+//--------------------------------------------------------------------------------------------------
+
+    private static void writeReferenceBody(ByteSink out, Reference reference) throws IOException {
+        writeVarint(out, zigzag(reference.getBook().getLocation()));
+        writeVarint(out, zigzag(reference.getChapter()));
+
+        //count the runs of consecutive verses first, so the reader knows how many to expect
+        int count = reference.verseCount();
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || reference.verseAt(i) != reference.verseAt(i - 1) + 1) {
+                runs++;
+            }
+        }
+        writeVarint(out, runs);
+
+        //the first run starts at its verse, and every other run starts at least 2 verses after the previous run ended
+        int i = 0;
+        int previousLast = 0;
+        boolean firstRun = true;
+        while (i < count) {
+            int first = reference.verseAt(i);
+            int last = first;
+            while (i + 1 < count && reference.verseAt(i + 1) == last + 1) {
+                last++;
+                i++;
+            }
+            i++;
+
+            if (firstRun) {
+                writeVarint(out, zigzag(first));
+                firstRun = false;
+            }
+            else {
+                writeVarint(out, first - previousLast - 2);
+            }
+            writeVarint(out, last - first);
+            previousLast = last;
+        }
+    }
+
+    private Reference readReferenceBody(ByteSource in) throws IOException {
+        int location = unzigzag(readVarint(in));
+        int chapter = unzigzag(readVarint(in));
+
+        Reference.Builder builder = new Reference.Builder();
+        if (bible != null) {
+            builder.setBible(bible);
+        }
+        builder.setBook(findBook(location));
+        builder.setChapter(chapter);
+        builder.setFlag(Reference.Builder.PREVENT_AUTO_ADD_VERSES_FLAG);
+
+        int runs = readCount(in, "runs of verses");
+        long previousLast = 0;
+        for (int run = 0; run < runs; run++) {
+            long first = (run == 0)
+                    ? unzigzag(readVarint(in))
+                    : previousLast + 2 + readCount(in, "verses between runs");
+            long last = first + readCount(in, "verses in a run");
+            if (first < -MAX_VERSE || last > MAX_VERSE) {
+                throw new IOException("Corrupt run of verses " + first + "-" + last);
+            }
+            builder.addRange((int) first, (int) last);
+            previousLast = last;
+        }
+
+        return builder.create();
+    }
+
+    private Book findBook(int location) {
+        OrdinalIndex index = (bible != null) ? bible.getOrdinalIndex() : null;
+        int bookIndex = (index != null) ? index.indexOfLocation(location) : -1;
+        if (bookIndex >= 0) {
+            return (Book) bible.getBooks().get(bookIndex);
+        }
+
+        Book book = new SimpleBook();
+        book.setLocation(location);
+        return book;
+    }
+
+    private static void readVersion(ByteSource in) throws IOException {
+        int version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Cannot read version " + version + " of the binary format, only version " + VERSION);
+        }
+    }
+
+    private static void writeString(ByteSink out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        for (byte b : bytes) {
+            out.put(b);
+        }
+    }
+
+    private static String readString(ByteSource in) throws IOException {
+        int length = readCount(in, "bytes in a String");
+        byte[] bytes = new byte[Math.min(length, INITIAL_CAPACITY)];
+        for (int i = 0; i < length; i++) {
+            if (i == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min((long) length, bytes.length * 2L));
+            }
+            bytes[i] = (byte) in.get();
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a count or length, which must not be negative. Lists and arrays are not allocated at this size up front,
+     * since a corrupt count could be anything up to 2^31.
+     */
+    private static int readCount(ByteSource in, String what) throws IOException {
+        int count = readVarint(in);
+        if (count < 0) {
+            throw new IOException("Corrupt number of " + what + ": " + (count & 0xFFFFFFFFL));
+        }
+        return count;
+    }
+
+    /**
+     * Read from a ByteBuffer, reporting the end of the buffer the same way as a DataInput does.
+     */
+    private static ByteSource source(ByteBuffer in) {
+        return () -> {
+            if (!in.hasRemaining()) {
+                throw new EOFException("Unexpected end of the buffer");
+            }
+            return in.get() & 0xFF;
+        };
+    }
+
+    private static void writeVarint(ByteSink out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.put((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.put(value);
+    }
+
+    private static int readVarint(ByteSource in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static void writeVarlong(ByteSink out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.put((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.put((int) value);
+    }
+
+    private static long readVarlong(ByteSource in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static void writeFixed(ByteSink out, long value, int bytes) throws IOException {
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.put((int) (value >>> (i * 8)) & 0xFF);
+        }
+    }
+
+    private static long readFixed(ByteSource in, int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | in.get();
+        }
+        return value;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    //the same encoding is written to and read from both DataOutput/DataInput and ByteBuffers
+    private interface ByteSink {
+        void put(int b) throws IOException;
+    }
+
+    private interface ByteSource {
+        int get() throws IOException;
+    }
+}
@@ -0,0 +1,105 @@
+package com.eden.serializers;
+
+import com.eden.bible.Book;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
+/**
+ * Streams Books to and from JSON as an object with the Book's id, name, abbreviation, location, and the number of
+ * verses in each of its chapters. Any Book can be written, but only a Book class with a no-argument constructor can be
+ * read.
+ *
+ * @param <T> the type of Book
+ */
+public final class BookTypeAdapter<T extends Book> extends TypeAdapter<T> {
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+
+    /**
+     * Create an adapter for the given type of Book.
+     *
+     * @param type the class of the Books to read and write
+     */
+    public BookTypeAdapter(Class<T> type) {
+        this.type = type;
+        this.constructor = EdenTypeAdapterFactory.findConstructor(type);
+    }
+
+    @Override
+    public void write(JsonWriter out, T book) throws IOException {
+        if (book == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("id").value(book.getId());
+        out.name("name").value(book.getName());
+        out.name("abbreviation").value(book.getAbbreviation());
+        out.name("location").value(book.getLocation());
+
+        out.name("chapters");
+        out.beginArray();
+        for (int chapter = 1; chapter <= book.numChapters(); chapter++) {
+            out.value(book.numVersesInChapter(chapter));
+        }
+        out.endArray();
+
+        out.endObject();
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        T book = EdenTypeAdapterFactory.newInstance(type, constructor);
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            }
+            else if (name.equals("id")) {
+                book.setId(in.nextString());
+            }
+            else if (name.equals("name")) {
+                book.setName(in.nextString());
+            }
+            else if (name.equals("abbreviation")) {
+                book.setAbbreviation(in.nextString());
+            }
+            else if (name.equals("location")) {
+                book.setLocation(in.nextInt());
+            }
+            else if (name.equals("chapters")) {
+                int[] chapters = new int[8];
+                int count = 0;
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (count == chapters.length) {
+                        chapters = Arrays.copyOf(chapters, count * 2);
+                    }
+                    chapters[count++] = in.nextInt();
+                }
+                in.endArray();
+                book.setChapters(Arrays.copyOf(chapters, count));
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return book;
+    }
+}
@@ -0,0 +1,149 @@
+package com.eden.serializers;
+
+import com.eden.bible.AbstractVerse;
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Metadata;
+import com.eden.bible.Reference;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Creates the streaming TypeAdapters for the core Eden types: {@link Reference}, {@link Metadata}, and any kind of
+ * {@link Book}, {@link Bible} or {@link AbstractVerse}. Register it with
+ * {@link com.google.gson.GsonBuilder#registerTypeAdapterFactory(TypeAdapterFactory)}.
+ * <p>
+ * The adapters for Books, Bibles and verses only write the fields those base classes declare, and a verse's text is
+ * not written at all, so subclasses which need more should not use them. A factory from
+ * {@link #referencesAndMetadata()} only handles References and Metadata, and leaves every other type to Gson, which is
+ * how Eden's own {@link com.eden.Eden#getSerializer() serializer} and {@link com.eden.Eden#getDeserializer()
+ * deserializer} use it.
+ * <p>
+ * References are read into the Bible given to this factory, finding their Books by id. The Books of a Bible are read
+ * as the type of Book the Bible class declares, such as {@link com.eden.simple.SimpleBook} for a
+ * {@link com.eden.simple.SimpleBible}.
+ */
+public final class EdenTypeAdapterFactory implements TypeAdapterFactory {
+    private final Bible bible;
+    private final boolean modelTypes;
+
+    /**
+     * Create a factory for every core type, whose References are read without a Bible.
+     */
+    public EdenTypeAdapterFactory() {
+        this(null);
+    }
+
+    /**
+     * Create a factory for every core type, whose References are read into the given Bible.
+     *
+     * @param bible the Bible to find the Books of References in, or null
+     */
+    public EdenTypeAdapterFactory(Bible bible) {
+        this(bible, true);
+    }
+
+    private EdenTypeAdapterFactory(Bible bible, boolean modelTypes) {
+        this.bible = bible;
+        this.modelTypes = modelTypes;
+    }
+
+    /**
+     * Create a factory which only handles References and Metadata, reading References without a Bible.
+     *
+     * @return the new factory
+     */
+    public static EdenTypeAdapterFactory referencesAndMetadata() {
+        return new EdenTypeAdapterFactory(null, false);
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> type = typeToken.getRawType();
+
+        if (type == Reference.class) {
+            return (TypeAdapter<T>) new ReferenceTypeAdapter(bible);
+        }
+        else if (type == Metadata.class) {
+            return (TypeAdapter<T>) new MetadataTypeAdapter();
+        }
+        else if (!modelTypes) {
+            return null;
+        }
+        else if (Book.class.isAssignableFrom(type)) {
+            return (TypeAdapter<T>) new BookTypeAdapter(type);
+        }
+        else if (Bible.class.isAssignableFrom(type)) {
+            TypeAdapter<Book> bookAdapter = (TypeAdapter<Book>) gson.getAdapter(bookTypeOf(type));
+            return (TypeAdapter<T>) new BibleTypeAdapter(type, bookAdapter);
+        }
+        else if (AbstractVerse.class.isAssignableFrom(type)) {
+            return (TypeAdapter<T>) new VerseTypeAdapter(type,
+                    gson.getAdapter(Reference.class),
+                    gson.getAdapter(Metadata.class)
+            );
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Find the type of Book that a Bible class declares for its Books, such as {@code SimpleBook} for
+     * {@code SimpleBible extends Bible<SimpleBook>}.
+     */
+    private static Class<?> bookTypeOf(Class<?> bibleType) {
+        for (Class<?> type = bibleType; type != null && type != Bible.class; type = type.getSuperclass()) {
+            Type superclass = type.getGenericSuperclass();
+            if (superclass instanceof ParameterizedType && ((ParameterizedType) superclass).getRawType() == Bible.class) {
+                Type bookType = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+                if (bookType instanceof Class) {
+                    return (Class<?>) bookType;
+                }
+                break;
+            }
+        }
+        return Book.class;
+    }
+
+    static <T> Constructor<T> findConstructor(Class<T> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    static <T> T newInstance(Class<T> type, Constructor<T> constructor) {
+        if (constructor == null) {
+            throw new JsonParseException("Cannot create an instance of " + type.getName());
+        }
+
+        try {
+            return constructor.newInstance();
+        }
+        catch (Exception e) {
+            throw new JsonParseException("Cannot create an instance of " + type.getName(), e);
+        }
+    }
+}
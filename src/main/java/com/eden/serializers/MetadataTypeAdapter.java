@@ -0,0 +1,142 @@
+package com.eden.serializers;
+
+import com.eden.bible.Metadata;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streams Metadata to and from JSON. Each key is written with an object naming the type of its value, such as
+ * {@code "count": {"int": 3}}, so the value is read back as the same type it was put into the Metadata as. Only the
+ * types with convenience methods in Metadata can be written: bytes, shorts, ints, longs, floats, doubles, booleans,
+ * chars and Strings. Values of any other type are left out.
+ */
+public final class MetadataTypeAdapter extends TypeAdapter<Metadata> {
+
+    @Override
+    public void write(JsonWriter out, Metadata metadata) throws IOException {
+        if (metadata == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        for (String key : metadata.getKeys()) {
+            Object value = metadata.get(key);
+            String type = typeOf(value);
+            if (type == null) {
+                continue;
+            }
+
+            out.name(key);
+            out.beginObject();
+            out.name(type);
+            if (value instanceof Float || value instanceof Double) {
+                out.value(((Number) value).doubleValue());
+            }
+            else if (value instanceof Number) {
+                out.value(((Number) value).longValue());
+            }
+            else if (value instanceof Boolean) {
+                out.value((Boolean) value);
+            }
+            else {
+                out.value(value.toString());
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Metadata read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Metadata metadata = new Metadata();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            in.beginObject();
+            while (in.hasNext()) {
+                String type = in.nextName();
+                if (type.equals("byte")) {
+                    metadata.putByte(key, (byte) in.nextInt());
+                }
+                else if (type.equals("short")) {
+                    metadata.putShort(key, (short) in.nextInt());
+                }
+                else if (type.equals("int")) {
+                    metadata.putInt(key, in.nextInt());
+                }
+                else if (type.equals("long")) {
+                    metadata.putLong(key, in.nextLong());
+                }
+                else if (type.equals("float")) {
+                    metadata.putFloat(key, (float) in.nextDouble());
+                }
+                else if (type.equals("double")) {
+                    metadata.putDouble(key, in.nextDouble());
+                }
+                else if (type.equals("boolean")) {
+                    metadata.putBoolean(key, in.nextBoolean());
+                }
+                else if (type.equals("char")) {
+                    String value = in.nextString();
+                    if (value.length() > 0) {
+                        metadata.putChar(key, value.charAt(0));
+                    }
+                }
+                else if (type.equals("string")) {
+                    metadata.putString(key, in.nextString());
+                }
+                else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        in.endObject();
+
+        return metadata;
+    }
+
+    private static String typeOf(Object value) {
+        if (value instanceof Byte) {
+            return "byte";
+        }
+        else if (value instanceof Short) {
+            return "short";
+        }
+        else if (value instanceof Integer) {
+            return "int";
+        }
+        else if (value instanceof Long) {
+            return "long";
+        }
+        else if (value instanceof Float) {
+            return "float";
+        }
+        else if (value instanceof Double) {
+            return "double";
+        }
+        else if (value instanceof Boolean) {
+            return "boolean";
+        }
+        else if (value instanceof Character) {
+            return "char";
+        }
+        else if (value instanceof String) {
+            return "string";
+        }
+        else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.eden.serializers;
+
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.OrdinalIndex;
+import com.eden.bible.Reference;
+import com.eden.simple.SimpleBook;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streams References to and from JSON without building a tree of JSON elements. A Reference is written as an object
+ * with the id, name and location of its Book, the id of its Bible, its chapter, and its verses, where a run of
+ * consecutive verses is written as a two-element array of its first and last verse, so "John 3:16-18, 20" has the
+ * verses {@code [[16, 18], 20]}.
+ * <p>
+ * Books are found in the Bible given to this adapter by their id, or failing that by their location. When there is no
+ * Bible, or it has no such Book, the Reference gets a {@link SimpleBook} with the id, name and location that were
+ * written, so References to different Books are still different once read. Verses written as plain numbers are also
+ * read, so JSON written by {@link Reference.ReferenceJsonizer} can be read as well. Like {@link BinaryCodec}, verses
+ * that no chapter could have, backwards ranges, and more verses than any chapter could hold are rejected with a
+ * {@link JsonParseException} rather than read.
+ */
+public final class ReferenceTypeAdapter extends TypeAdapter<Reference> {
+
+    //no chapter in any Bible comes close to this many verses, so a verse beyond it can only come from corrupt data
+    private static final int MAX_VERSE = 0xFFFF;
+
+    private final Bible bible;
+
+    /**
+     * Create an adapter which reads References without a Bible.
+     */
+    public ReferenceTypeAdapter() {
+        this(null);
+    }
+
+    /**
+     * Create an adapter which reads References into the given Bible.
+     *
+     * @param bible the Bible to find Books in, or null
+     */
+    public ReferenceTypeAdapter(Bible bible) {
+        this.bible = bible;
+    }
+
+    public Bible getBible() {
+        return bible;
+    }
+
+    @Override
+    public void write(JsonWriter out, Reference reference) throws IOException {
+        if (reference == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        Book book = reference.getBook();
+        out.name("book").value(book.getId());
+        out.name("bookName").value(book.getName());
+        out.name("bookLocation").value(book.getLocation());
+        out.name("bible").value((reference.getBible() != null) ? reference.getBible().getId() : null);
+        out.name("chapter").value(reference.getChapter());
+
+        out.name("verses");
+        out.beginArray();
+        int count = reference.verseCount();
+        int i = 0;
+        while (i < count) {
+            int first = reference.verseAt(i);
+            int last = first;
+            while (i + 1 < count && reference.verseAt(i + 1) == last + 1) {
+                last++;
+                i++;
+            }
+            i++;
+
+            if (first == last) {
+                out.value(first);
+            }
+            else {
+                out.beginArray();
+                out.value(first);
+                out.value(last);
+                out.endArray();
+            }
+        }
+        out.endArray();
+
+        out.endObject();
+    }
+
+    @Override
+    public Reference read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        String bookId = null;
+        String bookName = null;
+        int bookLocation = 0;
+        boolean hasLocation = false;
+        int chapter = 1;
+        int[] ranges = new int[8];
+        int rangeCount = 0;
+        long verseCount = 0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            }
+            else if (name.equals("book")) {
+                bookId = in.nextString();
+            }
+            else if (name.equals("bookName")) {
+                bookName = in.nextString();
+            }
+            else if (name.equals("bookLocation")) {
+                bookLocation = in.nextInt();
+                hasLocation = true;
+            }
+            else if (name.equals("chapter")) {
+                chapter = in.nextInt();
+            }
+            else if (name.equals("verses")) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    int from;
+                    int to;
+                    if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                        in.beginArray();
+                        from = in.nextInt();
+                        to = in.nextInt();
+                        in.endArray();
+                    }
+                    else {
+                        from = in.nextInt();
+                        to = from;
+                    }
+
+                    verseCount += (long) to - from + 1;
+                    if (from < -MAX_VERSE || to > MAX_VERSE || to < from || verseCount > MAX_VERSE) {
+                        throw new JsonParseException("Corrupt range of verses " + from + "-" + to);
+                    }
+                    if (rangeCount + 2 > ranges.length) {
+                        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                    }
+                    ranges[rangeCount++] = from;
+                    ranges[rangeCount++] = to;
+                }
+                in.endArray();
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        //the verses can only be validated once the Book and chapter are known, which may come after them in the JSON
+        Reference.Builder builder = new Reference.Builder();
+        if (bible != null) {
+            builder.setBible(bible);
+        }
+        builder.setBook(findBook(bookId, bookName, bookLocation, hasLocation));
+        builder.setChapter(chapter);
+        for (int i = 0; i < rangeCount; i += 2) {
+            builder.addRange(ranges[i], ranges[i + 1]);
+        }
+        builder.setFlag(Reference.Builder.PREVENT_AUTO_ADD_VERSES_FLAG);
+
+        return builder.create();
+    }
+
+    private Book findBook(String bookId, String bookName, int bookLocation, boolean hasLocation) {
+        Book book = (bible != null) ? bible.getBookById(bookId) : null;
+        if (book == null && bible != null && hasLocation) {
+            OrdinalIndex index = bible.getOrdinalIndex();
+            int bookIndex = (index != null) ? index.indexOfLocation(bookLocation) : -1;
+            if (bookIndex >= 0) {
+                book = (Book) bible.getBooks().get(bookIndex);
+            }
+        }
+
+        if (book == null) {
+            book = new SimpleBook();
+            book.setId(bookId);
+            if (bookName != null) {
+                book.setName(bookName);
+            }
+            else if (bookId != null) {
+                book.setName(bookId);
+            }
+            book.setLocation(bookLocation);
+        }
+        return book;
+    }
+}
@@ -0,0 +1,118 @@
+package com.eden.serializers;
+
+import com.eden.bible.AbstractVerse;
+import com.eden.bible.Metadata;
+import com.eden.bible.Reference;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+
+/**
+ * Streams Verses, Passages, and other AbstractVerses to and from JSON as an object with the verse's Reference, id and
+ * Metadata. The text of a verse is not written, since it is fetched from the verse's source rather than stored with
+ * it. Any AbstractVerse can be written, but only a class with a constructor which takes just a Reference, like
+ * {@link com.eden.bible.Verse} and {@link com.eden.bible.Passage}, can be read.
+ *
+ * @param <T> the type of AbstractVerse
+ */
+public final class VerseTypeAdapter<T extends AbstractVerse> extends TypeAdapter<T> {
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    private final TypeAdapter<Reference> referenceAdapter;
+    private final TypeAdapter<Metadata> metadataAdapter;
+
+    /**
+     * Create an adapter for the given type of verse.
+     *
+     * @param type             the class of the verses to read and write
+     * @param referenceAdapter the adapter for the verses' References
+     * @param metadataAdapter  the adapter for the verses' Metadata
+     */
+    public VerseTypeAdapter(Class<T> type, TypeAdapter<Reference> referenceAdapter, TypeAdapter<Metadata> metadataAdapter) {
+        this.type = type;
+        this.constructor = findConstructor(type);
+        this.referenceAdapter = referenceAdapter;
+        this.metadataAdapter = metadataAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, T verse) throws IOException {
+        if (verse == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("reference");
+        referenceAdapter.write(out, verse.getReference());
+        out.name("id").value(verse.getId());
+        out.name("metadata");
+        metadataAdapter.write(out, verse.getMetadata());
+        out.endObject();
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Reference reference = null;
+        String id = null;
+        Metadata metadata = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            }
+            else if (name.equals("reference")) {
+                reference = referenceAdapter.read(in);
+            }
+            else if (name.equals("id")) {
+                id = in.nextString();
+            }
+            else if (name.equals("metadata")) {
+                metadata = metadataAdapter.read(in);
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        //the Reference must be known before the verse can be created
+        if (constructor == null) {
+            throw new JsonParseException("Cannot create an instance of " + type.getName());
+        }
+        T verse;
+        try {
+            verse = constructor.newInstance(reference);
+        }
+        catch (Exception e) {
+            throw new JsonParseException("Cannot create an instance of " + type.getName(), e);
+        }
+
+        verse.setId(id);
+        if (metadata != null) {
+            verse.setMetadata(metadata);
+        }
+        return verse;
+    }
+
+    private static <T> Constructor<T> findConstructor(Class<T> type) {
+        try {
+            return type.getConstructor(Reference.class);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.eden.simple;
 
 import com.eden.bible.Bible;
+import com.eden.bible.Versification;
+
+import java.util.Collection;
+import java.util.Collections;
 
 public class SimpleBible extends Bible<SimpleBook> {
 
@@ -8,10 +12,68 @@ public class SimpleBible extends Bible<SimpleBook> {
         this.books.add(new SimpleBook());
     }
 
+    /**
+     * Get a shared, empty SimpleBible which cannot be modified, such as to use as a default value without creating a
+     * new Bible every time.
+     *
+     * @return the shared empty SimpleBible
+     */
+    public static SimpleBible empty() {
+        return EmptyBible.INSTANCE;
+    }
+
     @Override
     public SimpleBook parseBook(String bookName) {
         SimpleBook book = new SimpleBook();
         book.setName(bookName);
         return book;
     }
+
+    private static final class EmptyBible extends SimpleBible {
+        private static final EmptyBible INSTANCE = new EmptyBible();
+
+        private EmptyBible() {
+            this.books = Collections.singletonList(SimpleBook.empty());
+        }
+
+        @Override
+        public void setId(String id) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setAbbreviation(String abbreviation) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setLanguage(String language) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setCopyright(String copyright) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setBooks(Collection<SimpleBook> books) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setMaxEditDistance(int maxEditDistance) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+
+        @Override
+        public void setVersification(Versification versification) {
+            throw new UnsupportedOperationException("The empty SimpleBible cannot be modified");
+        }
+    }
 }
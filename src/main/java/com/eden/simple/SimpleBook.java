@@ -2,8 +2,20 @@ package com.eden.simple;
 
 import com.eden.bible.Book;
 
+import java.util.List;
+
 public class SimpleBook extends Book {
 
+    /**
+     * Get a shared, empty SimpleBook which cannot be modified, such as to use as a default value without creating a
+     * new Book every time.
+     *
+     * @return the shared empty SimpleBook
+     */
+    public static SimpleBook empty() {
+        return EmptyBook.INSTANCE;
+    }
+
     @Override
     public boolean validateChapter(int chapter) {
         return true;
@@ -13,4 +25,42 @@ public class SimpleBook extends Book {
     public boolean validateVerseInChapter(int chapter, int verse) {
         return true;
     }
+
+    private static final class EmptyBook extends SimpleBook {
+        private static final EmptyBook INSTANCE = new EmptyBook();
+
+        private EmptyBook() {
+            //a new Book has no chapters, and an empty array cannot be changed
+        }
+
+        @Override
+        public void setId(String id) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+
+        @Override
+        public void setAbbreviation(String abbreviation) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+
+        @Override
+        public void setLocation(int location) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+
+        @Override
+        public void setChapters(int... chapters) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+
+        @Override
+        public void setChapters(List<Integer> chapters) {
+            throw new UnsupportedOperationException("The empty SimpleBook cannot be modified");
+        }
+    }
 }
@@ -24,7 +24,7 @@ public class SimplePassage extends Passage {
         String text = "";
 
         text += verseFormatter.onPreFormat(this);
-        text += verseFormatter.onFormatVerseStart(reference.getVerses().get(0));
+        text += verseFormatter.onFormatVerseStart(reference.verseAt(0));
         text += verseFormatter.onFormatText(this.text);
         text += verseFormatter.onPostFormat();
 
@@ -4,6 +4,12 @@ import com.caseyjbrooks.eden.dummy.DummyBible;
 import com.caseyjbrooks.eden.dummy.DummyBibleList;
 import com.caseyjbrooks.eden.dummy.DummyBook;
 import com.eden.bible.Book;
+import com.eden.bible.Reference;
+import com.eden.serializers.EdenTypeAdapterFactory;
+import com.eden.simple.SimpleBible;
+import com.eden.simple.SimpleBook;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -40,6 +46,44 @@ public class BiblesTest {
         assertThat(book.validateVerseInChapter(3, 0), is(false));
     }
 
+    @Test
+    public void testBookVerseOffsets() {
+        Book book = new DummyBook(1, "Dummy Book", 45, 22, 76, 12, 5);
+
+        assertThat(book.numVerses(), is(equalTo(160)));
+        assertThat(book.verseOffset(1, 1), is(equalTo(0)));
+        assertThat(book.verseOffset(2, 1), is(equalTo(45)));
+        assertThat(book.verseOffset(5, 5), is(equalTo(159)));
+        assertThat(book.verseOffset(3, 77), is(equalTo(-1)));
+        assertThat(book.verseOffset(6, 1), is(equalTo(-1)));
+
+        // the chapters are copied, so changing the list they were set from does not change the Book
+        List<Integer> list = new ArrayList<>();
+        list.add(3);
+        list.add(4);
+        book.setChapters(list);
+        list.add(5);
+        assertThat(book.numChapters(), is(equalTo(2)));
+        assertThat(book.numVerses(), is(equalTo(7)));
+        assertThat(book.verseOffset(2, 4), is(equalTo(6)));
+
+        book.setChapters((List<Integer>) null);
+        assertThat(book.getChapters(), is(nullValue()));
+        assertThat(book.numChapters(), is(equalTo(-1)));
+        assertThat(book.numVerses(), is(equalTo(-1)));
+        assertThat(book.validateVerseInChapter(1, 1), is(false));
+
+        // Books written and read by reflection only keep their chapters, and the offsets are rebuilt from them
+        SimpleBook reflected = new SimpleBook();
+        reflected.setChapters(3, 5, 2);
+        String json = new Gson().toJson(reflected);
+        assertThat(json, not(containsString("Offsets")));
+
+        SimpleBook copy = new Gson().fromJson(json, SimpleBook.class);
+        assertThat(copy.numVerses(), is(equalTo(10)));
+        assertThat(copy.verseOffset(3, 1), is(equalTo(8)));
+    }
+
     @Test
     public void testBookComparison() {
         Book book1 = new DummyBook(1, "Book 1", 45, 22, 76, 12, 5);
@@ -157,6 +201,78 @@ public class BiblesTest {
 
         // Test that trying to find a book not in this Bible is null
         assertThat(bible.parseBook("I'm Not In This Bible"), is(nullValue()));
+
+        // Test that matching ignores case, and that a name which is a prefix of the input also matches
+        assertThat(bible.parseBook("bible BOOK").getLocation(), is(equalTo(13)));
+        assertThat(bible.parseBook("AAAAAAAA").getLocation(), is(equalTo(0)));
+        assertThat(bible.parseBook("asdfgh").getLocation(), is(equalTo(10)));
+
+        // Test that when several books match, the first one in the Bible wins
+        assertThat(bible.parseBook("A").getLocation(), is(equalTo(0)));
+
+        // Test that the index is rebuilt when the books change
+        books.add(0, new DummyBook(20, "Another Book"));
+        bible.setBooks(books);
+        assertThat(bible.parseBook("A").getLocation(), is(equalTo(20)));
+        assertThat(bible.parseBook("AAAAA").getLocation(), is(equalTo(0)));
+
+        bible.getBooks().add(new DummyBook(21, "Zebra"));
+        assertThat(bible.parseBook("Zeb").getLocation(), is(equalTo(21)));
+
+        bible.getBooks().get(0).setName("Renamed");
+        bible.getBooks().get(0).setAbbreviation("Ren");
+        bible.invalidateBookIndex();
+        assertThat(bible.parseBook("Renamed").getLocation(), is(equalTo(20)));
+        assertThat(bible.parseBook("A").getLocation(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testParseBookWithTypos() {
+        DummyBible bible = new DummyBible();
+
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "Genesis"));
+        books.add(new DummyBook(57, "Philemon"));
+        books.add(new DummyBook(50, "Philippians"));
+        books.add(new DummyBook(66, "Revelation"));
+        books.add(new DummyBook(70, "Abcd"));
+        books.add(new DummyBook(71, "Abce"));
+        bible.setBooks(books);
+
+        // Test that misspelled names are not matched unless a maximum edit distance is set
+        assertThat(bible.getMaxEditDistance(), is(equalTo(0)));
+        assertThat(bible.parseBook("Rvelation"), is(nullValue()));
+
+        bible.setMaxEditDistance(2);
+        assertThat(bible.parseBook("Rvelation").getLocation(), is(equalTo(66)));
+        assertThat(bible.parseBook("Filippians").getLocation(), is(equalTo(50)));
+        assertThat(bible.parseBook("phlemon").getLocation(), is(equalTo(57)));
+        assertThat(bible.parseBook("Gneesis").getLocation(), is(equalTo(1)));
+        assertThat(bible.parseBook("Xyzzy"), is(nullValue()));
+
+        // Test that exact and prefix matches still win over closer misspellings, and ties go to the first book
+        assertThat(bible.parseBook("Phil").getLocation(), is(equalTo(57)));
+        assertThat(bible.parseBook("Abcf").getLocation(), is(equalTo(70)));
+
+        // Test that the distance is bounded, and that the index follows changes to the books
+        bible.setMaxEditDistance(1);
+        assertThat(bible.parseBook("Filippians"), is(nullValue()));
+
+        bible.getBooks().add(new DummyBook(80, "Zephaniah"));
+        assertThat(bible.parseBook("Zeph").getLocation(), is(equalTo(80)));
+        assertThat(bible.parseBook("Xephaniah").getLocation(), is(equalTo(80)));
+
+        // Test that the parser finds misspelled books too
+        Reference reference = new Reference.Builder().setBible(bible).parseReference("Revalation 3:16").create();
+        assertThat(reference.getBook().getLocation(), is(equalTo(66)));
+
+        try {
+            bible.setMaxEditDistance(-1);
+            assertThat("A negative edit distance should not be allowed", false);
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(bible.getMaxEditDistance(), is(equalTo(1)));
+        }
     }
 
     @Test
@@ -170,6 +286,42 @@ public class BiblesTest {
         assertThat(bibleA.compareTo(bibleB), is(lessThan(0)));
     }
 
+    @Test
+    public void testBibleJson() {
+        SimpleBible bible = new SimpleBible();
+        bible.setId("eng-TST");
+        bible.setName("Test Bible");
+        bible.setLanguage("English");
+
+        List<SimpleBook> books = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            SimpleBook book = new SimpleBook();
+            book.setId("eng-TST:B" + i);
+            book.setName("Book " + i);
+            book.setAbbreviation("B" + i);
+            book.setLocation(i);
+            book.setChapters(10 * i, 20 * i);
+            books.add(book);
+        }
+        bible.setBooks(books);
+
+        assertThat(bible.getBookById("eng-TST:B2"), is(sameInstance(books.get(1))));
+        assertThat(bible.getBookById("eng-TST:B3"), is(nullValue()));
+
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory()).create();
+        String json = gson.toJson(bible);
+        assertThat(json, startsWith("{\"id\":\"eng-TST\",\"name\":\"Test Bible\",\"abbreviation\":\"TB\",\"language\":\"English\",\"books\":["));
+
+        SimpleBible copy = gson.fromJson(json, SimpleBible.class);
+        assertThat(copy.getName(), is(equalTo("Test Bible")));
+        assertThat(copy.getAbbreviation(), is(equalTo("TB")));
+        assertThat(copy.getBooks().size(), is(equalTo(2)));
+        assertThat(copy.getBookById("eng-TST:B2").getName(), is(equalTo("Book 2")));
+        assertThat(copy.getBookById("eng-TST:B2").getLocation(), is(equalTo(2)));
+        assertThat(copy.getBookById("eng-TST:B2").getChapters(), contains(20, 40));
+        assertThat(gson.toJson(copy), is(equalTo(json)));
+    }
+
 // Test BibleList class functionality
 //----------------------------------------------------------------------------------------------------------------------
 
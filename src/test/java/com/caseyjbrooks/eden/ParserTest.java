@@ -2,11 +2,25 @@ package com.caseyjbrooks.eden;
 
 import com.caseyjbrooks.eden.dummy.DummyBible;
 import com.caseyjbrooks.eden.dummy.DummyBook;
+import com.eden.bible.Book;
 import com.eden.bible.Reference;
+import com.eden.parser.CompiledReferenceParser;
+import com.eden.parser.ParseCache;
+import com.eden.parser.ParseResult;
+import com.eden.parser.ParseSession;
+import com.eden.parser.ReferenceExtractor;
+import com.eden.parser.ReferenceMatch;
+import com.eden.parser.ReferenceParser;
+import com.eden.parser.Token;
+import com.eden.parser.TokenStream;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -116,6 +130,464 @@ public class ParserTest {
         }
     }
 
+    @Test
+    public void testTokenStream() throws Throwable {
+        String input = "1 John  3:16-18,\t20";
+        TokenStream ts = new TokenStream(input);
+
+        // Test that each token records its span within the input, and that whitespace is skipped between tokens
+        Token.Type[] expectedTypes = new Token.Type[] {
+                Token.Type.NUMBER, Token.Type.WORD, Token.Type.NUMBER, Token.Type.COLON, Token.Type.NUMBER,
+                Token.Type.DASH, Token.Type.NUMBER, Token.Type.COMMA, Token.Type.NUMBER
+        };
+        String[] expectedText = new String[] {"1", "John", "3", ":", "16", "-", "18", ",", "20"};
+
+        for(int i = 0; i < expectedTypes.length; i++) {
+            Token token = ts.get();
+            assertThat(token, is(notNullValue()));
+            assertThat(token.equals(expectedTypes[i]), is(true));
+            assertThat(input.substring(token.getStart(), token.getEnd()), is(equalTo(expectedText[i])));
+        }
+        assertThat(ts.get(), is(nullValue()));
+        assertThat(ts.position(), is(equalTo(input.length())));
+
+        // Test that tokens which are put back are returned again in last-in-first-out order, without moving the cursor
+        ts.reset("Rom 8:28");
+        Token a = ts.get();
+        Token b = ts.get();
+        int position = ts.position();
+        ts.unget(b);
+        ts.unget(a);
+        ts.unget(null);
+        assertThat(ts.position(), is(equalTo(position)));
+        assertThat(ts.get(), is(nullValue()));
+        assertThat(ts.get(), is(sameInstance(a)));
+        assertThat(ts.get(), is(sameInstance(b)));
+        assertThat(ts.get().equals(Token.Type.COLON), is(true));
+
+        // Test that numbers too large to be a chapter or verse are not lexed
+        ts.reset("99999999999 5");
+        assertThat(ts.get(), is(nullValue()));
+        assertThat(ts.get().equals(Token.Type.NUMBER), is(true));
+    }
+
+    @Test
+    public void testBulkParsing() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        // Test that every input gets a result, in the order of the input, and that failures are flagged per-item
+        List<String> input = new ArrayList<>();
+        IntStream.rangeClosed(1, 2000).forEach(i -> input.add((i % 10 == 0) ? "QQQQQ " + i : "CCCCC 1:" + (i % 99 + 1)));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<ParseResult> results;
+        try {
+            results = ReferenceParser.parseAll(input.stream(), bible, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertThat(results.size(), is(equalTo(input.size())));
+
+        for(int i = 0; i < input.size(); i++) {
+            ParseResult result = results.get(i);
+            assertThat(result.getInput(), is(equalTo(input.get(i))));
+            assertThat(result.getReference(), is(notNullValue()));
+
+            if((i + 1) % 10 == 0) {
+                assertThat(result.isSuccess(), is(false));
+                assertThat(result.checkFlag(Reference.Builder.PARSE_FAILURE), is(true));
+            }
+            else {
+                assertThat(result.isSuccess(), is(true));
+                assertThat(result.checkFlag(Reference.Builder.PARSE_FAILURE), is(false));
+                assertThat(result.getReference().toString(), is(equalTo(input.get(i))));
+            }
+        }
+
+        results = ReferenceParser.parseAll(input.stream(), bible);
+        assertThat(results.size(), is(equalTo(input.size())));
+        assertThat(results.get(0).getReference().toString(), is(equalTo("CCCCC 1:2")));
+    }
+
+    @Test
+    public void testMultipleReferenceParsing() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        // Test that the book is carried forward to passages that don't name one, and that chapters and books can change
+        List<Reference> references = builder.parseReferences("AAAAA 3:16; 4:2, 5-7; BBBBB 2:20-22, 3:1; 2; CCCCC 1:5 and 8");
+        assertThat(references.size(), is(equalTo(6)));
+        assertThat(references.get(0).toString(), is(equalTo("AAAAA 3:16")));
+        assertThat(references.get(1).toString(), is(equalTo("AAAAA 4:2, 5-7")));
+        assertThat(references.get(2).toString(), is(equalTo("BBBBB 2:20-22")));
+        assertThat(references.get(3).toString(), is(equalTo("BBBBB 3:1")));
+        assertThat(references.get(4).toString(), is(equalTo("BBBBB 2:1-43")));
+        assertThat(references.get(5).toString(), is(equalTo("CCCCC 1:5, 8")));
+        assertThat(builder.checkFlag(Reference.Builder.PARSED), is(true));
+        assertThat(builder.checkFlag(Reference.Builder.DEFAULT_BIBLE_FLAG), is(false));
+
+        // Test that a new book may follow a comma, and that a single passage still parses as one Reference
+        references = builder.parseReferences("AAAAA 1:1, BBBBB 1:1");
+        assertThat(references.size(), is(equalTo(2)));
+        assertThat(references.get(1).toString(), is(equalTo("BBBBB 1:1")));
+
+        references = builder.parseReferences("BBBBB 2:20-40");
+        assertThat(references.size(), is(equalTo(1)));
+        assertThat(references.get(0).toString(), is(equalTo("BBBBB 2:20-40")));
+
+        // Test that passages which cannot be parsed are left out, and that a book that can't be found is carried forward
+        references = builder.parseReferences("QQQQQ 1:1; 2:2; AAAAA 1:1");
+        assertThat(references.size(), is(equalTo(1)));
+        assertThat(references.get(0).toString(), is(equalTo("AAAAA 1:1")));
+
+        // Test that parsing a single reference is unaffected by semicolons
+        Reference reference = builder.parseReference("AAAAA 3:16; 4:2").create();
+        assertThat(reference.toString(), is(equalTo("AAAAA 3:2, 4, 16")));
+    }
+
+    @Test
+    public void testParseCache() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        ParseCache cache = new ParseCache(2);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+        builder.setParseCache(cache);
+
+        // Test that the first parse of a String misses, and that parsing it again hits with the same result, even if
+        // its whitespace differs
+        Reference first = builder.parseReference("BBBBB 2:20-22").create();
+        assertThat(cache.getMissCount(), is(equalTo(1L)));
+        assertThat(cache.getHitCount(), is(equalTo(0L)));
+
+        Reference second = new Reference.Builder().setBible(bible).setParseCache(cache).parseReference("  BBBBB  2:20-22 ").create();
+        assertThat(cache.getMissCount(), is(equalTo(1L)));
+        assertThat(cache.getHitCount(), is(equalTo(1L)));
+        assertThat(second, is(equalTo(first)));
+        assertThat(second.toString(), is(equalTo("BBBBB 2:20-22")));
+
+        // Test that the flags of a cached parse are the same as parsing it fresh, for failures as well as successes
+        builder.parseReference("QQQQQ 1:1");
+        builder.parseReference("QQQQQ 1:1");
+        assertThat(cache.getHitCount(), is(equalTo(2L)));
+        assertThat(builder.checkFlag(Reference.Builder.PARSE_FAILURE), is(true));
+        assertThat(builder.checkFlag(Reference.Builder.PARSE_SUCCESS), is(false));
+
+        builder.parseReference("AAAAA 3");
+        assertThat(builder.checkFlag(Reference.Builder.PARSE_SUCCESS), is(true));
+        assertThat(builder.create().toString(), is(equalTo("AAAAA 3:1-24")));
+
+        // Test that the least-recently used entry is evicted once the cache is full
+        assertThat(cache.size(), is(equalTo(2)));
+        assertThat(cache.getEvictionCount(), is(equalTo(1L)));
+
+        // Test that Bibles without an id do not share cached results
+        DummyBible otherBible = new DummyBible();
+        List<DummyBook> otherBooks = new ArrayList<>();
+        otherBooks.add(new DummyBook(7, "AAAAA", 5, 5, 5));
+        otherBible.setBooks(otherBooks);
+
+        Reference other = new Reference.Builder().setBible(otherBible).setParseCache(cache).parseReference("AAAAA 3").create();
+        assertThat(other.toString(), is(equalTo("AAAAA 3:1-5")));
+        assertThat(other.getBook().getLocation(), is(equalTo(7)));
+
+        // Test that Bibles which share an id do not share cached results either
+        bible.setId("dummy");
+        otherBible.setId("dummy");
+        cache.clear();
+        new Reference.Builder().setBible(bible).setParseCache(cache).parseReference("AAAAA 3").create();
+        other = new Reference.Builder().setBible(otherBible).setParseCache(cache).parseReference("AAAAA 3").create();
+        assertThat(other.getBook().getLocation(), is(equalTo(7)));
+
+        // Test that changing the Books or the edit distance of a Bible stops its old results from being used
+        List<DummyBook> newBooks = new ArrayList<>();
+        newBooks.add(new DummyBook(9, "AAAAA", 3, 3, 3));
+        otherBible.setBooks(newBooks);
+        other = new Reference.Builder().setBible(otherBible).setParseCache(cache).parseReference("AAAAA 3").create();
+        assertThat(other.getBook(), is(sameInstance((Book) newBooks.get(0))));
+        assertThat(other.toString(), is(equalTo("AAAAA 3:1-3")));
+
+        long misses = cache.getMissCount();
+        otherBible.setMaxEditDistance(1);
+        new Reference.Builder().setBible(otherBible).setParseCache(cache).parseReference("AAAAA 3").create();
+        assertThat(cache.getMissCount(), is(equalTo(misses + 1)));
+    }
+
+    @Test
+    public void testReferenceExtraction() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "John", 21, 25, 36, 54));
+        books.add(new DummyBook(2, "1 John", 10, 29, 24, 21));
+        books.add(new DummyBook(3, "Romans", 32, 29, 31, 25, 21, 23, 25, 39, 33, 21, 36, 21));
+        bible.setBooks(books);
+
+        String text = "As it says in John 3:16, and also in 1  John\n4:8. See Rom. 8:28-30, 35 or rom 12.\n"
+                + "Johnny 5 is alive, Romans said nothing, and Bromans 4:2 is not a book.";
+
+        ReferenceExtractor extractor = new ReferenceExtractor(bible);
+        List<ReferenceMatch> matches = extractor.extract(text);
+
+        // Test that each reference is found, and that the longest book name wins
+        assertThat(matches, hasSize(4));
+        assertThat(matches.get(0).getReference().toString(), is(equalTo("John 3:16")));
+        assertThat(matches.get(1).getReference().toString(), is(equalTo("1 John 4:8")));
+        assertThat(matches.get(2).getReference().toString(), is(equalTo("Romans 8:28-30, 35")));
+        assertThat(matches.get(3).getReference().toString(), is(equalTo("Romans 12:1-21")));
+
+        // Test that offsets point at the original text, and do not include trailing punctuation
+        assertThat(matches.get(0).getStart(), is(equalTo((long) text.indexOf("John 3:16"))));
+        assertThat(matches.get(0).getEnd(), is(equalTo((long) text.indexOf(", and"))));
+        assertThat(matches.get(1).getStart(), is(equalTo((long) text.indexOf("1  John"))));
+        assertThat(matches.get(1).getEnd(), is(equalTo((long) text.indexOf(". See"))));
+        assertThat(matches.get(1).getText(), is(equalTo("1 John 4:8")));
+        assertThat(text.substring((int) matches.get(2).getStart(), (int) matches.get(2).getEnd()), is(equalTo("Rom. 8:28-30, 35")));
+
+        // Test that reading from a Reader in chunks finds the same matches
+        List<ReferenceMatch> streamed = new ArrayList<>();
+        extractor.extract(new StringReader(text), streamed::add);
+        assertThat(streamed, hasSize(4));
+        for (int i = 0; i < streamed.size(); i++) {
+            assertThat(streamed.get(i).getReference(), is(equalTo(matches.get(i).getReference())));
+            assertThat(streamed.get(i).getStart(), is(equalTo(matches.get(i).getStart())));
+            assertThat(streamed.get(i).getEnd(), is(equalTo(matches.get(i).getEnd())));
+        }
+    }
+
+    @Test
+    public void testParseDiagnostics() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder().setBible(bible);
+
+        // Test that a valid reference has no problems in either mode
+        ParseResult result = builder.tryParseReference("BBBBB 2:20-22");
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.NONE)));
+        assertThat(result.getErrorPosition(), is(equalTo(-1)));
+        assertThat(result.getReference().toString(), is(equalTo("BBBBB 2:20-22")));
+        assertThat(builder.tryParseReference("BBBBB 2:20-22", true).isSuccess(), is(true));
+
+        // Test that failures report the kind and position of the first problem
+        String[] inputs = new String[] {
+                null,
+                "   ",
+                "QQQQQ 1:1",
+                "BBBBB: x3",
+                "BBBBB 9",
+                "BBBBB 2:99999999999",
+        };
+        ParseResult.ErrorKind[] kinds = new ParseResult.ErrorKind[] {
+                ParseResult.ErrorKind.EMPTY_INPUT,
+                ParseResult.ErrorKind.EMPTY_INPUT,
+                ParseResult.ErrorKind.UNKNOWN_BOOK,
+                ParseResult.ErrorKind.MISSING_CHAPTER,
+                ParseResult.ErrorKind.INVALID_CHAPTER,
+                ParseResult.ErrorKind.NUMBER_OVERFLOW,
+        };
+        int[] positions = new int[] {0, 0, 0, 7, 6, 8};
+        boolean[] failures = new boolean[] {true, true, true, false, true, false};
+
+        for (int i = 0; i < inputs.length; i++) {
+            result = builder.tryParseReference(inputs[i]);
+            assertThat(inputs[i], result.getErrorKind(), is(equalTo(kinds[i])));
+            assertThat(inputs[i], result.getErrorPosition(), is(equalTo(positions[i])));
+            assertThat(inputs[i], result.isSuccess(), is(!failures[i]));
+        }
+
+        result = builder.tryParseReference("BBBBB 2:99");
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.INVALID_VERSE)));
+        assertThat(result.getErrorPosition(), is(equalTo(8)));
+
+        // Test that lenient parsing recovers from problems that strict parsing rejects
+        result = builder.tryParseReference("BBBBB 2:1 and then some");
+        assertThat(result.isSuccess(), is(true));
+        result = builder.tryParseReference("BBBBB 2:1 and then some", true);
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.INVALID_VERSE)));
+        assertThat(result.getErrorPosition(), is(equalTo(14)));
+
+        result = builder.tryParseReference("BBBBB 2:1 blah", true);
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.UNEXPECTED_TOKEN)));
+        assertThat(result.getErrorPosition(), is(equalTo(10)));
+
+        result = builder.tryParseReference("12345 garbage", true);
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.MISSING_BOOK)));
+        assertThat(result.getErrorPosition(), is(equalTo(0)));
+        assertThat(builder.tryParseReference("3:16").getErrorKind(), is(equalTo(ParseResult.ErrorKind.MISSING_BOOK)));
+        assertThat(builder.tryParseReference("3:16").isSuccess(), is(false));
+
+        result = builder.tryParseReference("BBBBB 2:3-1", true);
+        assertThat(result.getErrorKind(), is(equalTo(ParseResult.ErrorKind.INVALID_VERSE)));
+        assertThat(result.getErrorPosition(), is(equalTo(10)));
+
+        // Test that a Reference with no verses can be compared without failing
+        Reference.Builder noVerses = new Reference.Builder().setBible(bible);
+        noVerses.setFlag(Reference.Builder.PREVENT_AUTO_ADD_VERSES_FLAG);
+        result = noVerses.tryParseReference("BBBBB 2");
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getReference().getVerses(), is(empty()));
+        assertThat(result.getReference().compareTo(builder.parseReference("BBBBB 2:1").create()), is(equalTo(0)));
+        assertThat(result.getReference().compareTo(builder.parseReference("BBBBB 2:2").create()), is(equalTo(-1)));
+    }
+
+    @Test
+    public void testParseSession() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "BBCCC", 99));
+        bible.setBooks(books);
+
+        // Test that typing and deleting one character at a time parses the same as parsing each input from scratch
+        String typed = "BBBBB 2:20-22, 30";
+        ParseSession session = new ParseSession(bible);
+        Reference.Builder fresh = new Reference.Builder().setBible(bible);
+
+        List<String> inputs = new ArrayList<>();
+        for (int i = 1; i <= typed.length(); i++) {
+            inputs.add(typed.substring(0, i));
+        }
+        for (int i = typed.length() - 1; i >= 0; i--) {
+            inputs.add(typed.substring(0, i));
+        }
+        inputs.add("BBCCC 9");
+        inputs.add("BBCCC 99:1");
+
+        for (String input : inputs) {
+            ParseResult expected = fresh.tryParseReference(input);
+            ParseResult actual = session.update(input);
+            assertThat(input, actual.getReference(), is(equalTo(expected.getReference())));
+            assertThat(input, actual.getFlags(), is(equalTo(expected.getFlags())));
+            assertThat(input, actual.getErrorKind(), is(equalTo(expected.getErrorKind())));
+        }
+
+        // Test that an edited TokenStream lexes the same Tokens as a new one
+        TokenStream ts = new TokenStream("").update("1 John 3:16");
+        while (ts.get() != null) { }
+        ts.update("1 John 3:1-4");
+        TokenStream expectedTokens = new TokenStream("1 John 3:1-4");
+        while (true) {
+            Token a = ts.get();
+            Token b = expectedTokens.get();
+            if (a == null || b == null) {
+                assertThat(a, is(nullValue()));
+                assertThat(b, is(nullValue()));
+                break;
+            }
+            assertThat(a.getStart(), is(equalTo(b.getStart())));
+            assertThat(a.getEnd(), is(equalTo(b.getEnd())));
+            assertThat(a.equals(Token.Type.NUMBER), is(equalTo(b.equals(Token.Type.NUMBER))));
+        }
+
+        // Test the completions offered as a reference is typed
+        session.update("B");
+        assertThat(session.getBookCompletions(), hasSize(2));
+        assertThat(session.getChapterCount(), is(equalTo(3)));
+        assertThat(session.getVerseCount(), is(equalTo(0)));
+
+        session.update("bbb");
+        assertThat(session.getBookCompletions(), hasSize(1));
+        assertThat(session.getBookCompletions().get(0).getName(), is(equalTo("BBBBB")));
+
+        session.update("BBBBB 2");
+        assertThat(session.getBookCompletions(), is(empty()));
+        assertThat(session.getChapterCount(), is(equalTo(3)));
+        assertThat(session.getVerseCount(), is(equalTo(43)));
+
+        session.update("BBBBB 4");
+        assertThat(session.getVerseCount(), is(equalTo(0)));
+
+        session.update("QQQQQ 1");
+        assertThat(session.getBookCompletions(), is(empty()));
+        assertThat(session.getChapterCount(), is(equalTo(0)));
+
+        // Test that resetting the session forgets the Book it found, so replaced Books are looked up again
+        session.update("BBBBB 2");
+        List<DummyBook> newBooks = new ArrayList<>();
+        newBooks.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        bible.setBooks(newBooks);
+        session.reset();
+        assertThat(session.getInput(), is(equalTo("")));
+        assertThat(session.getResult(), is(nullValue()));
+        assertThat(session.update("BBBBB 2").getReference().getBook(), is(sameInstance((Book) newBooks.get(0))));
+    }
+
+    @Test
+    public void testCompiledParser() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "1 CCCCC", 99));
+        bible.setBooks(books);
+
+        // Test that compiled parsers are shared, and compiled again when the Books change
+        CompiledReferenceParser compiled = CompiledReferenceParser.forBible(bible);
+        assertThat(CompiledReferenceParser.forBible(bible), is(sameInstance(compiled)));
+
+        // Test that the compiled parser recognizes common forms, and leaves everything else to the general parser
+        String[] recognized = new String[] {"BBBBB 2:20-22", "bbb. 3", "1CCCCC 1:1, 6 - 8", "  aa 3.16  "};
+        String[] unrecognized = new String[] {"BBBBB 2:99", "BBBBB 2 2", "QQQQQ 1:1", "BBBBB 2:1 and 4", "4 CCCCC 1", ""};
+
+        for (String input : recognized) {
+            assertThat(input, compiled.parse(input, new Reference.Builder().setBible(bible)), is(true));
+        }
+        for (String input : unrecognized) {
+            Reference.Builder untouched = new Reference.Builder().setBible(bible);
+            assertThat(input, compiled.parse(input, untouched), is(false));
+            assertThat(input, untouched.checkFlag(Reference.Builder.DEFAULT_BOOK_FLAG), is(true));
+        }
+
+        // Test that parsing with the compiled parser gives the same results as the general parser
+        Reference.Builder general = new Reference.Builder().setBible(bible);
+        Reference.Builder fast = new Reference.Builder().setBible(bible);
+        fast.getParser().setCompiled(true);
+
+        List<String> inputs = new ArrayList<>();
+        inputs.addAll(Arrays.asList(recognized));
+        inputs.addAll(Arrays.asList(unrecognized));
+        for (String input : inputs) {
+            ParseResult expected = general.tryParseReference(input);
+            ParseResult actual = fast.tryParseReference(input);
+            assertThat(input, actual.getReference(), is(equalTo(expected.getReference())));
+            assertThat(input, actual.getFlags(), is(equalTo(expected.getFlags())));
+            assertThat(input, actual.getErrorKind(), is(equalTo(expected.getErrorKind())));
+        }
+
+        books.add(new DummyBook(4, "DDDDD", 10));
+        bible.setBooks(books);
+        assertThat(CompiledReferenceParser.forBible(bible), is(not(sameInstance(compiled))));
+        assertThat(fast.parseReference("DDDDD 1:5").create().toString(), is(equalTo("DDDDD 1:5")));
+    }
+
     @Test
     public void testReferenceBuilder() throws Throwable {
         // Build a custom Bible so we can test how well it grabs chapters, verses, etc. from a fully-populated Bible
@@ -2,11 +2,43 @@ package com.caseyjbrooks.eden;
 
 import com.caseyjbrooks.eden.dummy.DummyBible;
 import com.caseyjbrooks.eden.dummy.DummyBook;
+import com.caseyjbrooks.eden.dummy.DummyPassage;
+import com.eden.bible.Bible;
+import com.eden.bible.Book;
+import com.eden.bible.Metadata;
+import com.eden.bible.OrdinalIndex;
 import com.eden.bible.Reference;
+import com.eden.bible.ReferenceCursor;
+import com.eden.bible.ReferenceIntervalTree;
+import com.eden.bible.ReferencePool;
+import com.eden.bible.VerseSet;
+import com.eden.bible.Versification;
+import com.eden.bible.VersificationMapping;
+import com.eden.defaults.DefaultBible;
+import com.eden.serializers.BinaryCodec;
+import com.eden.serializers.EdenTypeAdapterFactory;
+import com.eden.simple.SimpleBible;
+import com.eden.simple.SimpleBook;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -281,4 +313,777 @@ public class ReferenceTest {
         b = builder.parseReference("AAAAA 6:2-5").create();
         assertThat(a.equals(b), is(false));
     }
+
+    @Test
+    public void testPrimitiveVerseAccess() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        // verses are sorted and de-duplicated however they were given
+        Reference ref = builder.setBook(books.get(1)).setChapter(2).setVerses(9, 3, 4, 3, 5).create();
+        assertThat(ref.verseCount(), is(equalTo(4)));
+        assertThat(ref.verseAt(0), is(equalTo(3)));
+        assertThat(ref.verseAt(3), is(equalTo(9)));
+        assertThat(ref.getFirstVerse(), is(equalTo(3)));
+        assertThat(ref.getFinalVerse(), is(equalTo(9)));
+        assertThat(ref.containsVerse(4), is(true));
+        assertThat(ref.containsVerse(6), is(false));
+        assertThat(ref.getVerses(), contains(3, 4, 5, 9));
+        assertThat(ref.toString(), is(equalTo("BBBBB 2:3-5, 9")));
+
+        final List<Integer> visited = new ArrayList<>();
+        ref.forEachVerse(visited::add);
+        assertThat(visited, contains(3, 4, 5, 9));
+
+        ref = builder.parseReference("BBBBB 1:1-56").create();
+        assertThat(ref.toString(), is(equalTo("BBBBB 1:1-56")));
+
+        // the hashcode matches the one the verses had when they were stored as a List
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 56; i++) {
+            expected.add(i);
+        }
+        assertThat(ref.getVerses().hashCode(), is(equalTo(expected.hashCode())));
+        assertThat(ref.getVerses(), is(equalTo(expected)));
+
+        // changing the Builder after creating a Reference does not change that Reference
+        Reference created = builder.parseReference("BBBBB 2:3").create();
+        builder.addVerse(4);
+        assertThat(created.verseCount(), is(equalTo(1)));
+
+        boolean modified;
+        try {
+            ref.getVerses().add(57);
+            modified = true;
+        }
+        catch (UnsupportedOperationException e) {
+            modified = false;
+        }
+        assertThat(modified, is(false));
+    }
+
+    @Test
+    public void testReferenceOrdinals() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        OrdinalIndex index = bible.getOrdinalIndex();
+        assertThat(index.size(), is(equalTo(78 + 122 + 99)));
+        assertThat(index.bookCount(), is(equalTo(3)));
+        assertThat(index.ordinal(0, 1, 1), is(equalTo(0)));
+        assertThat(index.ordinal(1, 1, 1), is(equalTo(78)));
+        assertThat(index.ordinal(1, 2, 20), is(equalTo(78 + 56 + 19)));
+        assertThat(index.ordinal(1, 2, 44), is(equalTo(-1)));
+        assertThat(index.ordinal(1, 4, 1), is(equalTo(-1)));
+        assertThat(index.bookIndexAt(78 + 56 + 19), is(equalTo(1)));
+        assertThat(index.chapterAt(78 + 56 + 19), is(equalTo(2)));
+        assertThat(index.verseAt(78 + 56 + 19), is(equalTo(20)));
+        assertThat(index.lastOrdinalOfChapter(2, 1), is(equalTo(index.size() - 1)));
+        assertThat(index.indexOfLocation(3), is(equalTo(2)));
+        assertThat(index.indexOfLocation(4), is(equalTo(-1)));
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        Reference ref = builder.parseReference("BBBBB 2:20-40").create();
+        assertThat(ref.firstOrdinal(), is(equalTo(78 + 56 + 19)));
+        assertThat(ref.lastOrdinal(), is(equalTo(78 + 56 + 39)));
+
+        // the verse before the first verse of a chapter is the last verse of the chapter before it
+        ref = builder.parseReference("BBBBB 2:1").create();
+        assertThat(ref.previous(Reference.TYPE_VERSE).create().toString(), is(equalTo("BBBBB 1:56")));
+
+        // navigation wraps around from the end of the Bible to its beginning, and back again
+        ref = builder.parseReference("CCCCC 1:99").create();
+        assertThat(ref.next(Reference.TYPE_VERSE).create().toString(), is(equalTo("AAAAA 1:1")));
+        ref = builder.parseReference("AAAAA 1:1-3").create();
+        assertThat(ref.previous(Reference.TYPE_VERSE).create().toString(), is(equalTo("CCCCC 1:99")));
+        assertThat(ref.previous(Reference.TYPE_CHAPTER).create().toString(), is(equalTo("CCCCC 1:1-99")));
+
+        // the default canon is numbered from Genesis 1:1 to Revelation 22:21
+        int verseCount = 0;
+        for (int[] chapters : DefaultBible.defaultBookVerseCount) {
+            for (int verses : chapters) {
+                verseCount += verses;
+            }
+        }
+        OrdinalIndex canon = OrdinalIndex.defaultCanon();
+        assertThat(canon.bookCount(), is(equalTo(66)));
+        assertThat(canon.size(), is(equalTo(verseCount)));
+        assertThat(canon.bookIndexAt(canon.size() - 1), is(equalTo(65)));
+        assertThat(canon.chapterAt(canon.size() - 1), is(equalTo(22)));
+        assertThat(canon.verseAt(canon.size() - 1), is(equalTo(21)));
+    }
+
+    @Test
+    public void testReferenceInterning() {
+        DummyBible bible = new DummyBible();
+        bible.setId("dummy");
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        ReferencePool pool = new ReferencePool();
+        Reference a = builder.parseReference("BBBBB 2:20-40").create();
+        Reference b = builder.parseReference("BBBBB 2:20-40").create();
+        Reference c = builder.parseReference("BBBBB 2:20-41").create();
+        assertThat(a == b, is(false));
+
+        assertThat(pool.intern(a) == a, is(true));
+        assertThat(pool.intern(b) == a, is(true));
+        assertThat(pool.intern(c) == c, is(true));
+        assertThat(pool.size(), is(equalTo(2)));
+
+        pool.clear();
+        assertThat(pool.size(), is(equalTo(0)));
+        assertThat(pool.intern(b) == b, is(true));
+
+        // the default pool is shared by every Reference
+        assertThat(a.intern() == b.intern(), is(true));
+    }
+
+    @Test
+    public void testInterningUnpooledReferences() {
+        ReferencePool pool = new ReferencePool();
+
+        // without a Bible, every Book is a placeholder at the same location, so nothing is pooled
+        Reference foo = new Reference.Builder().parseReference("Foo 1:1").create();
+        Reference bar = new Reference.Builder().parseReference("Bar 1:1").create();
+        assertThat(pool.intern(foo) == foo, is(true));
+        assertThat(pool.intern(bar) == bar, is(true));
+        assertThat(pool.intern(bar).toString(), is(equalTo("Bar 1:1")));
+        assertThat(pool.size(), is(equalTo(0)));
+
+        // Bibles with the same id but different Books are kept apart
+        DummyBible first = new DummyBible();
+        first.setId("dummy");
+        List<DummyBook> firstBooks = new ArrayList<>();
+        firstBooks.add(new DummyBook(1, "AAAAA", 6, 4));
+        first.setBooks(firstBooks);
+
+        DummyBible second = new DummyBible();
+        second.setId("dummy");
+        List<DummyBook> secondBooks = new ArrayList<>();
+        secondBooks.add(new DummyBook(1, "ZZZZZ", 6, 4));
+        second.setBooks(secondBooks);
+
+        Reference a = new Reference.Builder().setBible(first).parseReference("AAAAA 1:1").create();
+        Reference z = new Reference.Builder().setBible(second).parseReference("ZZZZZ 1:1").create();
+        assertThat(pool.intern(a) == a, is(true));
+        assertThat(pool.intern(z) == z, is(true));
+        assertThat(pool.size(), is(equalTo(2)));
+
+        // a Bible without an id is never pooled
+        DummyBible anonymous = new DummyBible();
+        anonymous.setBooks(firstBooks);
+        Reference c = new Reference.Builder().setBible(anonymous).parseReference("AAAAA 1:1").create();
+        assertThat(pool.intern(c) == c, is(true));
+        assertThat(pool.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testReferenceFormatting() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        Reference a = builder.parseReference("BBBBB 2:16-18, 20, 22-23").create();
+        Reference b = builder.parseReference("AAAAA 3").create();
+
+        // formatting appends to whatever is already there
+        StringBuilder sb = new StringBuilder("See ");
+        a.formatTo(sb).append(" and ");
+        b.formatTo(sb);
+        assertThat(sb.toString(), is(equalTo("See BBBBB 2:16-18, 20, 22-23 and AAAAA 3:1-24")));
+
+        StringWriter writer = new StringWriter();
+        a.formatTo((Appendable) writer);
+        assertThat(writer.toString(), is(equalTo(a.toString())));
+
+        // the String is formatted once, and the same instance is returned after that
+        assertThat(a.toString() == a.toString(), is(true));
+    }
+
+    @Test
+    public void testVerseSets() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        List<Reference> saved = new ArrayList<>();
+        saved.add(builder.parseReference("AAAAA 6:6").create());
+        saved.add(builder.parseReference("BBBBB 2:20-25").create());
+        saved.add(builder.parseReference("BBBBB 2:24-30").create());
+        saved.add(builder.parseReference("CCCCC 1").create());
+
+        List<Reference> plan = new ArrayList<>();
+        plan.add(builder.parseReference("BBBBB 2").create());
+        plan.add(builder.parseReference("BBBBB 3:1").create());
+
+        VerseSet a = VerseSet.of(bible, saved);
+        VerseSet b = VerseSet.of(bible, plan);
+        assertThat(a.cardinality(), is(equalTo(1 + 11 + 99)));
+        assertThat(b.cardinality(), is(equalTo(44)));
+        assertThat(a.contains(builder.parseReference("BBBBB 2:30").create().firstOrdinal()), is(true));
+        assertThat(a.containsAll(builder.parseReference("BBBBB 2:21-29").create()), is(true));
+        assertThat(a.containsAll(builder.parseReference("BBBBB 2:21-31").create()), is(false));
+        assertThat(a.intersects(builder.parseReference("BBBBB 2:30-35").create()), is(true));
+
+        // overlapping References are merged into one Reference per chapter
+        List<Reference> references = a.toReferences();
+        assertThat(references.size(), is(equalTo(3)));
+        assertThat(references.get(0).toString(), is(equalTo("AAAAA 6:6")));
+        assertThat(references.get(1).toString(), is(equalTo("BBBBB 2:20-30")));
+        assertThat(references.get(2).toString(), is(equalTo("CCCCC 1:1-99")));
+
+        assertThat(a.intersection(b).toReferences().toString(), is(equalTo("[BBBBB 2:20-30]")));
+        assertThat(a.difference(b).cardinality(), is(equalTo(100)));
+        assertThat(a.union(b).cardinality(), is(equalTo(1 + 44 + 99)));
+        assertThat(b.difference(a).toString(), is(equalTo("[BBBBB 2:1-19, 31-43, BBBBB 3:1]")));
+
+        // the set algebra does not change either set
+        assertThat(a.cardinality(), is(equalTo(111)));
+        assertThat(b.cardinality(), is(equalTo(44)));
+
+        // combining with a set of every verse in the Bible
+        VerseSet all = new VerseSet(bible);
+        for (int i = 0; i < bible.getOrdinalIndex().size(); i++) {
+            all.add(i);
+        }
+        assertThat(all.difference(a).union(a), is(equalTo(all)));
+        assertThat(all.intersection(a), is(equalTo(a)));
+        assertThat(a.remove(saved.get(3)), is(true));
+        assertThat(a.toString(), is(equalTo("[AAAAA 6:6, BBBBB 2:20-30]")));
+    }
+
+    @Test
+    public void testReferenceIntervals() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        ReferenceIntervalTree<String> notes = new ReferenceIntervalTree<>(bible);
+        notes.add(builder.parseReference("BBBBB 2").create(), "chapter");
+        notes.add(builder.parseReference("BBBBB 2:5-10").create(), "paragraph");
+        notes.add(builder.parseReference("BBBBB 2:8").create(), "verse");
+        notes.add(builder.parseReference("BBBBB 2:8").create(), "another verse");
+        notes.add(builder.parseReference("BBBBB 3:1, 5").create(), "list");
+        notes.add(builder.parseReference("AAAAA 1:1").create(), "beginning");
+        assertThat(notes.size(), is(equalTo(6)));
+
+        assertThat(values(notes.overlapping(builder.parseReference("BBBBB 2:10-20").create())),
+                contains("chapter", "paragraph"));
+        assertThat(values(notes.overlapping(builder.parseReference("BBBBB 3:3").create())),
+                contains("list"));
+        assertThat(values(notes.within(builder.parseReference("BBBBB 2").create())),
+                containsInAnyOrder("chapter", "paragraph", "verse", "another verse"));
+        assertThat(values(notes.containing(builder.parseReference("BBBBB 2:7-9").create())),
+                contains("chapter", "paragraph"));
+        assertThat(values(notes.stabbing(builder.parseReference("AAAAA 1:1").create().firstOrdinal())),
+                contains("beginning"));
+
+        assertThat(notes.remove(builder.parseReference("BBBBB 2:8").create(), "verse"), is(true));
+        assertThat(notes.remove(builder.parseReference("BBBBB 2:8").create(), "verse"), is(false));
+        assertThat(values(notes.stabbing(builder.parseReference("BBBBB 2:8").create().firstOrdinal())),
+                contains("chapter", "paragraph", "another verse"));
+        assertThat(notes.size(), is(equalTo(5)));
+    }
+
+    private static List<String> values(List<ReferenceIntervalTree.Entry<String>> entries) {
+        List<String> values = new ArrayList<>();
+        for (ReferenceIntervalTree.Entry<String> entry : entries) {
+            values.add(entry.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void testReferenceCursor() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        assertThat(bible.indexOfBook(books.get(2)), is(equalTo(2)));
+        assertThat(bible.indexOfBook(new DummyBook(4, "DDDDD", 1)), is(equalTo(-1)));
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        ReferenceCursor cursor = new ReferenceCursor(builder.parseReference("BBBBB 1:55-56").create());
+        assertThat(cursor.toString(), is(equalTo("BBBBB 1:55")));
+        assertThat(cursor.next(), is(true));
+        assertThat(cursor.next(), is(true));
+        assertThat(cursor.toString(), is(equalTo("BBBBB 2:1")));
+        assertThat(cursor.previous(), is(true));
+        assertThat(cursor.toReference().toString(), is(equalTo("BBBBB 1:56")));
+
+        assertThat(cursor.nextChapter(), is(true));
+        assertThat(cursor.nextChapter(), is(true));
+        assertThat(cursor.toString(), is(equalTo("BBBBB 3:1")));
+        assertThat(cursor.nextChapter(), is(true));
+        assertThat(cursor.toString(), is(equalTo("CCCCC 1:1")));
+        assertThat(cursor.previousChapter(), is(true));
+        assertThat(cursor.toString(), is(equalTo("BBBBB 3:1")));
+        assertThat(cursor.previousBook(), is(true));
+        assertThat(cursor.toString(), is(equalTo("AAAAA 1:1")));
+        assertThat(cursor.nextBook(), is(true));
+        assertThat(cursor.toString(), is(equalTo("BBBBB 1:1")));
+
+        // the cursor stops at either end of the Bible instead of wrapping around
+        assertThat(cursor.previousBook(), is(true));
+        assertThat(cursor.previousBook(), is(false));
+        assertThat(cursor.previous(), is(false));
+        assertThat(cursor.getOrdinal(), is(equalTo(0)));
+
+        int verses = 1;
+        while (cursor.next()) {
+            verses++;
+        }
+        assertThat(verses, is(equalTo(bible.getOrdinalIndex().size())));
+        assertThat(cursor.toString(), is(equalTo("CCCCC 1:99")));
+        assertThat(cursor.nextChapter(), is(false));
+        assertThat(cursor.nextBook(), is(false));
+    }
+
+    @Test
+    public void testVerseSpliterators() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(3, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder();
+        builder.setBible(bible);
+
+        int size = bible.getOrdinalIndex().size();
+        assertThat(StreamSupport.intStream(bible.verses(), false).count(), is(equalTo((long) size)));
+        assertThat(StreamSupport.intStream(bible.verses(), true).sum(), is(equalTo(size * (size - 1) / 2)));
+
+        // the verses of a Bible split evenly in half, whatever chapters they are in
+        Spliterator.OfInt verses = bible.verses();
+        Spliterator.OfInt firstHalf = verses.trySplit();
+        assertThat(firstHalf.estimateSize(), is(equalTo((long) size / 2)));
+        assertThat(verses.estimateSize(), is(equalTo((long) (size - size / 2))));
+
+        // a range crosses chapters and Books, and only becomes References when asked to
+        Reference start = builder.parseReference("AAAAA 6:5-6").create();
+        Reference end = builder.parseReference("BBBBB 1:1-2").create();
+        List<String> range = StreamSupport.intStream(start.rangeTo(end), false)
+                .mapToObj(bible::referenceAt)
+                .map(Reference::toString)
+                .collect(Collectors.toList());
+        assertThat(range, contains("AAAAA 6:5", "AAAAA 6:6", "BBBBB 1:1", "BBBBB 1:2"));
+
+        assertThat(end.rangeTo(start).estimateSize(), is(equalTo(0L)));
+
+        // both ends must be in the same Bible, even if the other Bible has the same Books
+        DummyBible other = new DummyBible();
+        other.setBooks(new ArrayList<>(bible.getBooks()));
+        Reference elsewhere = new Reference.Builder().setBible(other).parseReference("BBBBB 1:1-2").create();
+        boolean threw = false;
+        try {
+            start.rangeTo(elsewhere);
+        }
+        catch (IllegalArgumentException e) {
+            threw = true;
+        }
+        assertThat(threw, is(true));
+    }
+
+    @Test
+    public void testReusingBuilders() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        bible.setBooks(books);
+
+        // a reset Builder is indistinguishable from a new one
+        Reference.Builder builder = new Reference.Builder();
+        int defaultFlags = builder.getFlags();
+        builder.setBible(bible).setBook(books.get(1)).setChapter(2).setVerses(9, 3, 5);
+        assertThat(builder.getVerses(), contains(9, 3, 5));
+        assertThat(builder.getVerseCount(), is(equalTo(3)));
+
+        Reference first = builder.create();
+        builder.reset();
+        assertThat(builder.getFlags(), is(equalTo(defaultFlags)));
+        assertThat(builder.getBible(), is(sameInstance((Bible) SimpleBible.empty())));
+        assertThat(builder.getBook(), is(sameInstance((Book) SimpleBook.empty())));
+        assertThat(builder.getChapter(), is(equalTo(1)));
+        assertThat(builder.getVerses(), is(empty()));
+
+        // reusing the Builder does not change References it has already created
+        Reference second = builder.setBible(bible).parseReference("AAAAA 3:1-30").create();
+        assertThat(first.toString(), is(equalTo("BBBBB 2:3, 5, 9")));
+        assertThat(second.toString(), is(equalTo("AAAAA 3:1-24")));
+        assertThat(second.verseCount(), is(equalTo(24)));
+
+        // the shared defaults cannot be changed
+        boolean threw = false;
+        try {
+            SimpleBook.empty().setName("Changed");
+        }
+        catch (UnsupportedOperationException e) {
+            threw = true;
+        }
+        assertThat(threw, is(true));
+        assertThat(new Reference.Builder().getBook().getName(), is(nullValue()));
+
+        threw = false;
+        try {
+            new Reference.Builder().create().getBible().setVersification(new Versification.Builder("Changed").build());
+        }
+        catch (UnsupportedOperationException e) {
+            threw = true;
+        }
+        assertThat(threw, is(true));
+        assertThat(new Reference.Builder().getBible().getVersification(), is(sameInstance(Versification.standard())));
+    }
+
+    @Test
+    public void testBuilderRanges() {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 176));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder().setBible(bible).setBook(books.get(0)).setChapter(2);
+
+        // overlapping ranges only add each verse once, in the order they were first added
+        builder.addRange(170, 176).addRange(3, 5).addRange(4, 172);
+        assertThat(builder.getVerseCount(), is(equalTo(174)));
+        assertThat(builder.getVerses().subList(0, 9), contains(170, 171, 172, 173, 174, 175, 176, 3, 4));
+        assertThat(builder.checkFlag(Reference.Builder.DEFAULT_VERSES_FLAG), is(false));
+
+        // a backwards range adds nothing
+        builder.setVerses(1).addRange(9, 7);
+        assertThat(builder.getVerses(), contains(1));
+
+        // a range past the end of the chapter stops at its last verse, just like adding the verses one at a time
+        builder.setVerses(1).addRange(170, 500);
+        assertThat(builder.getVerseCount(), is(equalTo(8)));
+        assertThat(builder.checkFlag(Reference.Builder.DEFAULT_VERSES_FLAG), is(true));
+        assertThat(builder.create().toString(), is(equalTo("AAAAA 2:1, 170-176")));
+
+        assertThat(builder.parseReference("AAAAA 2:1-176").create().verseCount(), is(equalTo(176)));
+
+        // a range the Book does not limit is added all at once, stopping at verse 65535
+        Reference huge = new Reference.Builder().parseReference("Foo 1:1-2000000").create();
+        assertThat(huge.verseCount(), is(equalTo(65535)));
+        assertThat(huge.verseAt(65534), is(equalTo(65535)));
+
+        Reference.Builder unsized = new Reference.Builder().setBook(new DummyBook(1, "AAAAA")).setChapter(1);
+        unsized.setVerses(3).addRange(-5, 2).addRange(65530, Integer.MAX_VALUE);
+        assertThat(unsized.getVerseCount(), is(equalTo(9)));
+        assertThat(unsized.getVerses().subList(0, 4), contains(3, 1, 2, 65530));
+        assertThat(unsized.checkFlag(Reference.Builder.DEFAULT_VERSES_FLAG), is(true));
+
+        unsized.setVerses(3).addRange(4, 9);
+        assertThat(unsized.getVerseCount(), is(equalTo(7)));
+    }
+
+    @Test
+    public void testReferenceJsonWithoutBible() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory()).create();
+
+        // a Builder without a Bible makes a Book with no id, which must still be written and read back
+        Reference reference = new Reference.Builder().parseReference("Foo 3:1-5, 7").create();
+        Reference copy = gson.fromJson(gson.toJson(reference), Reference.class);
+        assertThat(copy.getChapter(), is(equalTo(3)));
+        assertThat(copy.getVerses(), is(equalTo(reference.getVerses())));
+        assertThat(copy.toString(), is(equalTo(reference.toString())));
+
+        // without a Bible, Books are told apart by the location and name that were written
+        SimpleBook genesis = new SimpleBook();
+        genesis.setName("Genesis");
+        genesis.setLocation(1);
+        SimpleBook john = new SimpleBook();
+        john.setName("John");
+        john.setLocation(43);
+        Reference first = gson.fromJson(gson.toJson(new Reference.Builder().setBook(genesis).setChapter(3).setVerses(16).create()), Reference.class);
+        Reference second = gson.fromJson(gson.toJson(new Reference.Builder().setBook(john).setChapter(3).setVerses(16).create()), Reference.class);
+        assertThat(first, is(not(equalTo(second))));
+        assertThat(first.toString(), is(equalTo("Genesis 3:16")));
+        assertThat(second.getBook().getLocation(), is(equalTo(43)));
+
+        // Eden's own builders only handle References and Metadata, leaving other types to Gson
+        EdenTypeAdapterFactory factory = EdenTypeAdapterFactory.referencesAndMetadata();
+        assertThat(factory.create(gson, TypeToken.get(Reference.class)), is(notNullValue()));
+        assertThat(factory.create(gson, TypeToken.get(Metadata.class)), is(notNullValue()));
+        assertThat(factory.create(gson, TypeToken.get(SimpleBook.class)), is(nullValue()));
+        assertThat(factory.create(gson, TypeToken.get(DummyPassage.class)), is(nullValue()));
+    }
+
+    @Test
+    public void testReferenceJson() {
+        DummyBible bible = new DummyBible();
+        bible.setId("dummy");
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.get(0).setId("dummy:A");
+        books.get(1).setId("dummy:B");
+        bible.setBooks(books);
+
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory(bible)).create();
+
+        // runs of verses are written as ranges, and Books are found again by their id
+        Reference reference = new Reference.Builder().setBible(bible).parseReference("AAAAA 3:1-5, 7, 9-10").create();
+        String json = gson.toJson(reference);
+        assertThat(json, is(equalTo("{\"book\":\"dummy:A\",\"bookName\":\"AAAAA\",\"bookLocation\":1,\"bible\":\"dummy\",\"chapter\":3,\"verses\":[[1,5],7,[9,10]]}")));
+
+        Reference copy = gson.fromJson(json, Reference.class);
+        assertThat(copy, is(equalTo(reference)));
+        assertThat(copy.getBook(), is(sameInstance((Book) books.get(0))));
+        assertThat(copy.getBible(), is(sameInstance((Bible) bible)));
+
+        // verses written one at a time can still be read
+        copy = gson.fromJson("{\"chapter\":2,\"verses\":[4,5,6],\"book\":\"dummy:B\"}", Reference.class);
+        assertThat(copy.toString(), is(equalTo("BBBBB 2:4-6")));
+
+        // verses keep their Reference, id and Metadata
+        DummyPassage passage = new DummyPassage(reference);
+        passage.setId("passage");
+        passage.getMetadata().putInt("count", 3);
+        passage.getMetadata().putString("note", "hello");
+        passage.getMetadata().putChar("letter", 'x');
+
+        DummyPassage passageCopy = gson.fromJson(gson.toJson(passage), DummyPassage.class);
+        assertThat(passageCopy, is(equalTo(passage)));
+        assertThat(passageCopy.getId(), is(equalTo("passage")));
+        assertThat(passageCopy.getVerses().size(), is(equalTo(8)));
+        assertThat(passageCopy.getMetadata().getInt("count"), is(equalTo(3)));
+        assertThat(passageCopy.getMetadata().getString("note"), is(equalTo("hello")));
+        assertThat(passageCopy.getMetadata().getChar("letter"), is(equalTo('x')));
+    }
+
+    @Test
+    public void testBinaryCodec() throws Throwable {
+        DummyBible bible = new DummyBible();
+        List<DummyBook> books = new ArrayList<>();
+        books.add(new DummyBook(1, "AAAAA", 6, 4, 24, 21, 17, 6));
+        books.add(new DummyBook(2, "BBBBB", 56, 43, 23));
+        books.add(new DummyBook(300, "CCCCC", 99));
+        bible.setBooks(books);
+
+        Reference.Builder builder = new Reference.Builder().setBible(bible);
+        List<Reference> references = builder.parseReferences("AAAAA 3:1-5, 7, 9-10; BBBBB 1; CCCCC 1:99");
+        BinaryCodec codec = new BinaryCodec(bible);
+
+        // a Reference is written as its Book, chapter, and runs of verses
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.writeReference(buffer, references.get(0));
+        assertThat(buffer.position(), is(equalTo(10)));
+        buffer.flip();
+        assertThat(codec.readReference(buffer), is(equalTo(references.get(0))));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.writeReferences(new DataOutputStream(bytes), references);
+        assertThat(bytes.size(), is(equalTo(23)));
+
+        List<Reference> copies = codec.readReferences(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(copies, is(equalTo(references)));
+        assertThat(copies.get(2).getBook(), is(sameInstance((Book) books.get(2))));
+
+        // without a Bible, References still come back equal
+        copies = new BinaryCodec().readReferences(ByteBuffer.wrap(bytes.toByteArray()));
+        assertThat(copies, is(equalTo(references)));
+        assertThat(copies.get(1).verseCount(), is(equalTo(56)));
+
+        // the binary encoding is several times smaller than either JSON encoding of the same References
+        List<Reference> corpus = new ArrayList<>();
+        for (DummyBook book : books) {
+            for (int chapter = 1; chapter <= book.numChapters(); chapter++) {
+                corpus.add(builder.parseReference(book.getName() + " " + chapter + ":1-3, 5").create());
+                corpus.add(builder.parseReference(book.getName() + " " + chapter).create());
+            }
+        }
+        bytes.reset();
+        codec.writeReferences(new DataOutputStream(bytes), corpus);
+        Gson streamingGson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory(bible)).create();
+        Gson jsonizerGson = new GsonBuilder().registerTypeAdapter(Reference.class, new Reference.ReferenceJsonizer()).create();
+        int streamingSize = streamingGson.toJson(corpus).getBytes(StandardCharsets.UTF_8).length;
+        int jsonizerSize = jsonizerGson.toJson(corpus).getBytes(StandardCharsets.UTF_8).length;
+        assertThat(bytes.size() * 4, is(lessThan(streamingSize)));
+        assertThat(bytes.size() * 4, is(lessThan(jsonizerSize)));
+
+        // Metadata keeps the type of each value
+        Metadata metadata = new Metadata();
+        metadata.putInt("int", -3);
+        metadata.putLong("long", Long.MAX_VALUE);
+        metadata.putDouble("double", 0.5);
+        metadata.putBoolean("boolean", true);
+        metadata.putChar("char", '\u00e9');
+        metadata.putString("string", "caf\u00e9");
+        bytes.reset();
+        codec.writeMetadata(new DataOutputStream(bytes), metadata);
+        Metadata metadataCopy = codec.readMetadata(ByteBuffer.wrap(bytes.toByteArray()));
+        assertThat(metadataCopy.size(), is(equalTo(6)));
+        assertThat(metadataCopy.getInt("int"), is(equalTo(-3)));
+        assertThat(metadataCopy.getLong("long"), is(equalTo(Long.MAX_VALUE)));
+        assertThat(metadataCopy.getDouble("double"), is(equalTo(0.5)));
+        assertThat(metadataCopy.getBoolean("boolean"), is(true));
+        assertThat(metadataCopy.getChar("char"), is(equalTo('\u00e9')));
+        assertThat(metadataCopy.getString("string"), is(equalTo("caf\u00e9")));
+
+        // data from another version of the format is rejected rather than misread
+        boolean threw = false;
+        try {
+            codec.readReference(ByteBuffer.wrap(new byte[] {2, 2, 2, 1, 2, 0}));
+        }
+        catch (IOException e) {
+            threw = true;
+        }
+        assertThat(threw, is(true));
+
+        // truncated or corrupt data is rejected before anything is allocated or looped over
+        byte[] valid = bytes.toByteArray();
+        BinaryCodec unbound = new BinaryCodec();
+        for (int length = 0; length < valid.length; length++) {
+            byte[] truncated = Arrays.copyOf(valid, length);
+            assertThat(throwsIOException(() -> codec.readReferences(ByteBuffer.wrap(truncated))), is(true));
+            assertThat(throwsIOException(() -> codec.readReferences(new DataInputStream(new ByteArrayInputStream(truncated)))), is(true));
+        }
+
+        // a count of 2^31 - 1 References, then a count of -1
+        assertThat(throwsIOException(() -> unbound.readReferences(ByteBuffer.wrap(new byte[] {1, -1, -1, -1, -1, 0x07}))), is(true));
+        assertThat(throwsIOException(() -> unbound.readReferences(ByteBuffer.wrap(new byte[] {1, -1, -1, -1, -1, 0x0F}))), is(true));
+        // one run of 2^28 verses, which would all be valid in a SimpleBook
+        assertThat(throwsIOException(() -> unbound.readReference(ByteBuffer.wrap(new byte[] {1, 2, 2, 1, 2, -1, -1, -1, 0x7F}))), is(true));
+        // a Metadata key of 2^31 - 1 bytes
+        assertThat(throwsIOException(() -> unbound.readMetadata(ByteBuffer.wrap(new byte[] {1, 1, -1, -1, -1, -1, 0x07}))), is(true));
+    }
+
+    private interface CodecRead {
+        Object read() throws IOException;
+    }
+
+    private static boolean throwsIOException(CodecRead read) {
+        try {
+            read.read();
+            return false;
+        }
+        catch (IOException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void testCorruptReferenceJson() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new EdenTypeAdapterFactory()).create();
+
+        // a Book nobody knows has no chapter sizes to limit the verses, so the JSON itself must be checked
+        String[] corrupt = {
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[[1,200000000]]}",
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[[1,2147483647]]}",
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[[-2147483648,1]]}",
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[[9,7]]}",
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[65536]}",
+                "{\"book\":\"x\",\"chapter\":1,\"verses\":[[1,40000],[1,40000]]}",
+        };
+        for (String json : corrupt) {
+            boolean threw = false;
+            try {
+                gson.fromJson(json, Reference.class);
+            }
+            catch (JsonParseException e) {
+                threw = true;
+            }
+            assertThat(json, threw, is(true));
+        }
+
+        Reference largest = gson.fromJson("{\"book\":\"x\",\"chapter\":1,\"verses\":[[1,65535]]}", Reference.class);
+        assertThat(largest.verseCount(), is(equalTo(65535)));
+    }
+
+    @Test
+    public void testVersificationMapping() throws Throwable {
+        DummyBible english = new DummyBible();
+        List<DummyBook> englishBooks = new ArrayList<>();
+        englishBooks.add(new DummyBook(1, "AAAAA", 8, 4));
+        englishBooks.add(new DummyBook(2, "BBBBB", 18, 6));
+        englishBooks.add(new DummyBook(3, "CCCCC", 5));
+        english.setBooks(englishBooks);
+
+        // counts the title of AAAAA 1 as its first verse, and joins BBBBB 2 onto the end of BBBBB 1
+        DummyBible hebrew = new DummyBible();
+        List<DummyBook> hebrewBooks = new ArrayList<>();
+        hebrewBooks.add(new DummyBook(1, "AAAAA", 9, 4));
+        hebrewBooks.add(new DummyBook(2, "BBBBB", 24));
+        hebrew.setBooks(hebrewBooks);
+        hebrew.setVersification(new Versification.Builder("Hebrew")
+                .map(1, 1, 2, 9, 1, 1, 1)
+                .map(2, 1, 19, 24, 2, 2, 1)
+                .build());
+
+        Reference.Builder builder = new Reference.Builder().setBible(english);
+        VersificationMapping toHebrew = english.getMappingTo(hebrew);
+        assertThat(english.getMappingTo(hebrew), is(sameInstance(toHebrew)));
+
+        // every verse shifts by one until CCCCC, which the Hebrew Bible does not have
+        assertThat(toHebrew.runCount(), is(equalTo(2)));
+        assertThat(toHebrew.map(builder.parseReference("AAAAA 1:1-3").create()).toString(), is(equalTo("[AAAAA 1:2-4]")));
+        assertThat(toHebrew.map(builder.parseReference("BBBBB 2:1-6").create()).toString(), is(equalTo("[BBBBB 1:19-24]")));
+        assertThat(toHebrew.map(builder.parseReference("CCCCC 1:1-5").create()).isEmpty(), is(true));
+
+        VerseSet all = new VerseSet(english);
+        for (int ordinal = 0; ordinal < english.getOrdinalIndex().size(); ordinal++) {
+            all.add(ordinal);
+        }
+        VerseSet translated = toHebrew.map(all);
+        assertThat(translated.getBible(), is(sameInstance((Bible) hebrew)));
+        assertThat(translated.cardinality(), is(equalTo(36)));
+        assertThat(translated.toReferences().toString(), is(equalTo("[AAAAA 1:2-9, AAAAA 2:1-4, BBBBB 1:1-24]")));
+
+        // going back, the title has no English verse and a chapter is split in two
+        VersificationMapping toEnglish = hebrew.getMappingTo(english);
+        assertThat(toEnglish.map(0), is(equalTo(VersificationMapping.UNMAPPED)));
+        assertThat(toEnglish.map(1), is(equalTo(0)));
+        builder.setBible(hebrew);
+        assertThat(toEnglish.map(builder.parseReference("AAAAA 1:1-2").create()).toString(), is(equalTo("[AAAAA 1:1]")));
+        assertThat(toEnglish.map(builder.parseReference("BBBBB 1:18-20").create()).toString(), is(equalTo("[BBBBB 1:18, BBBBB 2:1-2]")));
+
+        // the mapping is rebuilt when a versification changes
+        hebrew.setVersification(null);
+        VersificationMapping standard = english.getMappingTo(hebrew);
+        assertThat(standard, is(not(sameInstance(toHebrew))));
+        assertThat(standard.map(builder.setBible(english).parseReference("AAAAA 1:1-3").create()).toString(), is(equalTo("[AAAAA 1:1-3]")));
+    }
 }